@@ -0,0 +1,149 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with the committed baseline and fails on regressions.
+ *
+ * <p>Usage: {@code BenchmarkBaseline <baseline.json> <result.json> [timeTolerance] [allocationTolerance]}.
+ * Both files use JMH's {@code -rf json} format, so a new baseline is simply a copy of
+ * {@code target/jmh-result.json} from the machine that checks releases; none is committed,
+ * and without one the results are only listed. Benchmarks measured on another JVM or JDK
+ * version than the baseline are not compared, as their numbers say nothing about the code.
+ * A benchmark is a
+ * regression when its average time or its {@code -prof gc} allocation per operation grows
+ * by more than the tolerance, 20% and 10% by default. Allocation may also grow by
+ * {@value #ALLOCATION_SLACK_BYTES} B/op, so a benchmark that allocated nothing regresses once it
+ * allocates more than that, while JMH's rounding noise does not count. Benchmarks with a {@code size}
+ * parameter also show their throughput in findings per second.</p>
+ */
+public final class BenchmarkBaseline {
+
+    private static final String ALLOCATION_METRIC = "·gc.alloc.rate.norm";
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private BenchmarkBaseline() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkBaseline <baseline.json> <result.json> [timeTolerance] [allocationTolerance]");
+            System.exit(2);
+        }
+        double timeTolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.20;
+        double allocationTolerance = args.length > 3 ? Double.parseDouble(args[3]) : 0.10;
+
+        File baselineFile = new File(args[0]);
+        Map<String, JsonNode> baseline = Collections.emptyMap();
+        if (baselineFile.isFile()) {
+            baseline = read(baselineFile);
+        } else {
+            System.out.println("No baseline at " + baselineFile + "; copy a result file there to compare against it");
+        }
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode before = baseline.get(entry.getKey());
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            double time = now.path("primaryMetric").path("score").asDouble();
+            double allocation = now.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score").asDouble(-1);
+
+            StringBuilder line = new StringBuilder(String.format("%-70s %14.3f %-6s", entry.getKey(), time, unit));
+            if (allocation >= 0) {
+                line.append(String.format(" %14.0f B/op", allocation));
+            }
+            int findings = now.path("params").path("size").asInt(0);
+            if (findings > 0 && secondsPerUnit(unit) > 0) {
+                line.append(String.format(" %12.0f findings/s", findings / (time * secondsPerUnit(unit))));
+            }
+            if (before == null) {
+                System.out.println(line.append("  (new)"));
+                continue;
+            }
+            String jvm = jvmOf(now);
+            String baselineJvm = jvmOf(before);
+            if (!jvm.equals(baselineJvm)) {
+                System.out.println(line.append("  (baseline from ").append(baselineJvm).append(", not compared)"));
+                continue;
+            }
+            double timeChange = change(before.path("primaryMetric").path("score").asDouble(), time);
+            line.append(String.format("  time %+6.1f%%", timeChange * 100));
+            boolean regressed = timeChange > timeTolerance;
+
+            double allocationBefore = before.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score").asDouble(-1);
+            if (allocation >= 0 && allocationBefore >= 0) {
+                if (allocationBefore > 0) {
+                    line.append(String.format("  alloc %+6.1f%%", change(allocationBefore, allocation) * 100));
+                } else {
+                    line.append(String.format("  alloc %+6.0f B", allocation));
+                }
+                regressed |= allocation - allocationBefore
+                    > Math.max(allocationBefore * allocationTolerance, ALLOCATION_SLACK_BYTES);
+            }
+            if (regressed) {
+                regressions++;
+                line.append("  REGRESSION");
+            }
+            System.out.println(line);
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed against " + args[0]);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a JMH result file keyed by benchmark, mode and parameters.
+     */
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                .replace("dev.agentscan.jenkins.", ""));
+            key.append(" [").append(result.path("mode").asText()).append(']');
+            Map<String, String> params = new TreeMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = result.path("params").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String jvmOf(JsonNode result) {
+        return result.path("vmName").asText("unknown VM") + ' ' + result.path("jdkVersion").asText("unknown JDK");
+    }
+
+    private static double secondsPerUnit(String unit) {
+        switch (unit) {
+            case "s/op":
+                return 1;
+            case "ms/op":
+                return 1e-3;
+            case "us/op":
+                return 1e-6;
+            case "ns/op":
+                return 1e-9;
+            default:
+                return 0;
+        }
+    }
+
+    private static double change(double before, double after) {
+        return before > 0 ? (after - before) / before : 0;
+    }
+}
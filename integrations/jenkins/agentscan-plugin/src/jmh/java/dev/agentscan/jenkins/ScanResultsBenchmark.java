@@ -0,0 +1,101 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each stage a scan result goes through after the download: parsing, the
+ * severity summary, the fail-on-severity gate, SARIF and the HTML report.
+ *
+ * <p>Output goes to null sinks so only the plugin's own work is measured. Run with
+ * {@code mvn -Pbenchmarks compile exec:exec}, then compare with the committed baseline
+ * through {@code exec:exec@compare-baseline}; see {@link BenchmarkBaseline}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class ScanResultsBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] json;
+    private List<Finding> findings;
+    private ScanResult result;
+
+    @Setup
+    public void setUp() throws IOException {
+        findings = SyntheticResults.findings(size);
+        json = SyntheticResults.json(objectMapper, findings);
+        SummaryCounter counter = new SummaryCounter();
+        for (Finding finding : findings) {
+            counter.onFinding(finding);
+        }
+        result = ScanResult.success(findings, counter.getSummary());
+    }
+
+    @Benchmark
+    public ScanResult parseResults() throws IOException {
+        SummaryCounter counter = new SummaryCounter();
+        ScanResultCollector collector = new ScanResultCollector();
+        ScanResultsParser.parse(objectMapper, new ByteArrayInputStream(json), Arrays.asList(counter, collector));
+        return ScanResult.success(collector.getFindings(), counter.getSummary());
+    }
+
+    @Benchmark
+    public ScanSummary countBySeverity() {
+        SummaryCounter counter = new SummaryCounter();
+        for (Finding finding : findings) {
+            counter.onFinding(finding);
+        }
+        return counter.getSummary();
+    }
+
+    @Benchmark
+    public boolean failOnSeverityGate() throws IOException {
+        QualityGate.Evaluator gate = QualityGate.compile(QualityGate.forFailOnSeverity("medium")).newEvaluator(null, null);
+        for (Finding finding : findings) {
+            gate.onFinding(finding);
+        }
+        return gate.isTripped();
+    }
+
+    @Benchmark
+    public void writeSarif() throws IOException {
+        try (SarifResultsWriter writer = new SarifResultsWriter(objectMapper, OutputStream.nullOutputStream())) {
+            writer.onFindingsStart();
+            for (Finding finding : findings) {
+                writer.onFinding(finding);
+            }
+            writer.onFindingsEnd();
+            writer.onEnd();
+        }
+    }
+
+    @Benchmark
+    public void renderHtml() throws IOException {
+        HtmlReportGenerator.generateReport(result, Writer.nullWriter());
+    }
+}
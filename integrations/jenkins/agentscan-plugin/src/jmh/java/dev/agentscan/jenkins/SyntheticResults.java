@@ -0,0 +1,122 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible scan results shaped like real ones, for the benchmarks.
+ *
+ * <p>A few tools report a few hundred rules over a tree of files; severities follow a
+ * typical spread, most findings map to a CWE, descriptions repeat per rule and every
+ * finding has a three to six line snippet of about 60 characters per line.</p>
+ */
+final class SyntheticResults {
+
+    private static final String[] TOOLS = {"semgrep", "bandit", "eslint-security", "gosec", "trufflehog"};
+    private static final String[] CATEGORIES = {"injection", "xss", "crypto", "secrets", "path-traversal",
+        "deserialization", "ssrf", "misconfiguration"};
+    private static final String[] CWES = {"CWE-89", "CWE-79", "CWE-327", "CWE-798", "CWE-22", "CWE-502", "CWE-918",
+        null};
+    private static final String[] DIRECTORIES = {"src/main/java/com/example/", "src/main/resources/", "web/src/",
+        "web/src/components/", "services/payments/", "services/accounts/internal/", "scripts/", "deploy/"};
+    private static final String[] EXTENSIONS = {".java", ".py", ".ts", ".go", ".js", ".yaml"};
+    private static final String[] SNIPPET_LINES = {
+        "String query = \"SELECT * FROM users WHERE id = '\" + userId + \"'\";",
+        "ResultSet rows = connection.createStatement().executeQuery(query);",
+        "response.getWriter().write(\"<div>\" + request.getParameter(\"q\") + \"</div>\");",
+        "cipher = Cipher.getInstance(\"DES/ECB/PKCS5Padding\");",
+        "subprocess.call(\"tar -xf \" + archive_name, shell=True)",
+        "const el = document.getElementById('out'); el.innerHTML = params.get('msg');",
+        "AWS_SECRET_ACCESS_KEY = \"wJalrXUtnFEMI/K7MDENG/bPxRfiCYEXAMPLEKEY\"",
+        "data, _ := ioutil.ReadFile(filepath.Join(baseDir, r.URL.Query().Get(\"f\")))",
+        "ObjectInputStream in = new ObjectInputStream(socket.getInputStream());",
+        "if (token != null && token.equals(expected)) { return true; }",
+        "    logger.info(\"user {} logged in from {}\", user.getName(), remoteAddr);",
+        "}"
+    };
+    private static final int RULES_PER_TOOL = 60;
+
+    private SyntheticResults() {
+    }
+
+    static List<Finding> findings(int count) {
+        Random random = new Random(42);
+        StringPool strings = new StringPool();
+        int fileCount = Math.max(1, Math.min(count / 8, 20_000));
+        List<Finding> findings = new ArrayList<>(count);
+        StringBuilder snippet = new StringBuilder(512);
+
+        for (int i = 0; i < count; i++) {
+            int toolIndex = random.nextInt(TOOLS.length);
+            int rule = random.nextInt(RULES_PER_TOOL);
+            int file = random.nextInt(fileCount);
+            String tool = TOOLS[toolIndex];
+            String ruleId = strings.intern(tool + "/rule-" + rule);
+            int categoryIndex = (toolIndex * RULES_PER_TOOL + rule) % CATEGORIES.length;
+            String category = CATEGORIES[categoryIndex];
+
+            snippet.setLength(0);
+            int lines = 3 + random.nextInt(4);
+            for (int line = 0; line < lines; line++) {
+                if (line > 0) {
+                    snippet.append('\n');
+                }
+                snippet.append(SNIPPET_LINES[random.nextInt(SNIPPET_LINES.length)]);
+            }
+
+            findings.add(new Finding(
+                "finding-" + i,
+                tool,
+                ruleId,
+                severity(random.nextInt(100)),
+                category,
+                CWES[categoryIndex],
+                strings.intern("Possible " + category + " in " + ruleId),
+                strings.intern("Rule " + ruleId + " flags code where untrusted input reaches a " + category
+                    + " sink without validation. Validate or encode the value before use, or use the safe API "
+                    + "that the framework provides for this purpose."),
+                strings.intern(DIRECTORIES[file % DIRECTORIES.length] + "module" + (file / 64) + "/File" + file
+                    + EXTENSIONS[file % EXTENSIONS.length]),
+                1 + random.nextInt(2000),
+                1 + random.nextInt(80),
+                snippet.toString(),
+                0.5 + random.nextInt(50) / 100.0));
+        }
+        return findings;
+    }
+
+    /**
+     * Renders findings as the API's results document, without a server summary.
+     */
+    static byte[] json(ObjectMapper objectMapper, List<Finding> findings) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(1024, findings.size() * 600));
+        try (JsonResultsWriter writer = new JsonResultsWriter(objectMapper, out)) {
+            writer.onMetadata("scan_id", "benchmark");
+            writer.onFindingsStart();
+            for (Finding finding : findings) {
+                writer.onFinding(finding);
+            }
+            writer.onFindingsEnd();
+            writer.onEnd();
+        }
+        return out.toByteArray();
+    }
+
+    private static Severity severity(int percentile) {
+        if (percentile < 2) {
+            return Severity.CRITICAL;
+        } else if (percentile < 15) {
+            return Severity.HIGH;
+        } else if (percentile < 50) {
+            return Severity.MEDIUM;
+        } else if (percentile < 85) {
+            return Severity.LOW;
+        }
+        return Severity.INFO;
+    }
+}
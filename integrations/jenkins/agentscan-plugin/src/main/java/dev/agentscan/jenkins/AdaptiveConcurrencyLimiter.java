@@ -0,0 +1,146 @@
+package dev.agentscan.jenkins;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit on the requests in flight to one AgentScan API, shared by all builds of
+ * the controller, with a budget for retries.
+ *
+ * <p>The limit follows AIMD: every successful response while the limit is in use adds
+ * {@code 1/limit}, so it grows by one per round of requests. An overload response (429,
+ * 503) or a timeout halves it, and a response much slower than the usual latency takes 10%
+ * off, at most once per {@value #DECREASE_INTERVAL_MILLIS} ms so that a burst of failures
+ * counts once. The usual latency is the lowest seen, drifting up slowly.</p>
+ *
+ * <p>Each request adds a tenth of a token to the retry budget, up to
+ * {@value #MAX_RETRY_TOKENS}, and each retry takes a whole one. During an outage retries
+ * are thus capped at about 10% of the traffic instead of multiplying it.</p>
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    private static final int INITIAL_LIMIT = 10;
+    private static final double OVERLOAD_RATIO = 0.5;
+    private static final double LATENCY_RATIO = 0.9;
+    /** A response this many times slower than the usual latency counts as a sign of overload. */
+    private static final double LATENCY_TOLERANCE = 3.0;
+    private static final double LATENCY_DRIFT = 0.01;
+    private static final long DECREASE_INTERVAL_MILLIS = 1000;
+    private static final double RETRY_TOKENS_PER_REQUEST = 0.1;
+    private static final double MAX_RETRY_TOKENS = 10;
+
+    private static final Map<String, AdaptiveConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private double limit = INITIAL_LIMIT;
+    private int inFlight;
+    private double usualLatencyMillis = -1;
+    private long lastDecreaseNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(DECREASE_INTERVAL_MILLIS);
+    private double retryTokens = MAX_RETRY_TOKENS;
+
+    static AdaptiveConcurrencyLimiter forApi(String apiUrl) {
+        return LIMITERS.computeIfAbsent(AgentScanHttpClients.apiKey(apiUrl), key -> new AdaptiveConcurrencyLimiter());
+    }
+
+    /**
+     * Waits up to {@code timeoutMillis} for the number of requests in flight to drop below the limit.
+     *
+     * @param retry whether the request is a retry, which does not add to the retry budget
+     * @return whether the caller may send the request; it must then call {@link #release}
+     */
+    synchronized boolean acquire(long timeoutMillis, boolean retry) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeoutMillis;
+        while (inFlight >= currentLimit()) {
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        take(retry);
+        return true;
+    }
+
+    /**
+     * Takes a request slot if one is free, without waiting.
+     *
+     * @see #acquire
+     */
+    synchronized boolean tryAcquire(boolean retry) {
+        if (inFlight >= currentLimit()) {
+            return false;
+        }
+        take(retry);
+        return true;
+    }
+
+    synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Records a response that shows no overload.
+     *
+     * @param latencyMillis time until the response headers arrived, or a negative value if
+     *     the server may hold the request on purpose
+     */
+    synchronized void onSuccess(long latencyMillis) {
+        if (latencyMillis >= 0) {
+            if (usualLatencyMillis < 0 || latencyMillis < usualLatencyMillis) {
+                usualLatencyMillis = latencyMillis;
+            } else {
+                usualLatencyMillis += (latencyMillis - usualLatencyMillis) * LATENCY_DRIFT;
+            }
+            if (latencyMillis > usualLatencyMillis * LATENCY_TOLERANCE && latencyMillis > 100) {
+                decrease(LATENCY_RATIO);
+                return;
+            }
+        }
+        // Only grow while the limit is what holds requests back
+        int maxLimit = AgentScanGlobalConfiguration.get().getMaxConnectionsPerRoute();
+        if (inFlight + 1 >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Records an overload response or a timeout.
+     */
+    synchronized void onOverload() {
+        decrease(OVERLOAD_RATIO);
+    }
+
+    /**
+     * Takes a token from the retry budget.
+     *
+     * @return whether a retry may be sent
+     */
+    synchronized boolean tryRetry() {
+        if (retryTokens < 1) {
+            return false;
+        }
+        retryTokens -= 1;
+        return true;
+    }
+
+    synchronized int currentLimit() {
+        return Math.max(1, (int) limit);
+    }
+
+    private void take(boolean retry) {
+        inFlight++;
+        if (!retry) {
+            retryTokens = Math.min(MAX_RETRY_TOKENS, retryTokens + RETRY_TOKENS_PER_REQUEST);
+        }
+    }
+
+    private void decrease(double ratio) {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < TimeUnit.MILLISECONDS.toNanos(DECREASE_INTERVAL_MILLIS)) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        limit = Math.max(1, limit * ratio);
+    }
+}
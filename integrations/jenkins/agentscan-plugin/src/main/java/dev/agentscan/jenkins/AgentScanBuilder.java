@@ -3,6 +3,7 @@ package dev.agentscan.jenkins;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import hudson.AbortException;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -21,7 +22,12 @@ import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
@@ -39,6 +45,9 @@ public class AgentScanBuilder extends Builder implements SimpleBuildStep {
     private boolean uploadSarif = true;
     private boolean generateReport = true;
     private int timeoutMinutes = 30;
+    private boolean incrementalScan = false;
+    private String qualityGate = "";
+    private boolean failFast = false;
 
     @DataBoundConstructor
     public AgentScanBuilder() {
@@ -125,6 +134,33 @@ public class AgentScanBuilder extends Builder implements SimpleBuildStep {
         this.timeoutMinutes = timeoutMinutes;
     }
 
+    public boolean isIncrementalScan() {
+        return incrementalScan;
+    }
+
+    @DataBoundSetter
+    public void setIncrementalScan(boolean incrementalScan) {
+        this.incrementalScan = incrementalScan;
+    }
+
+    public String getQualityGate() {
+        return qualityGate;
+    }
+
+    @DataBoundSetter
+    public void setQualityGate(String qualityGate) {
+        this.qualityGate = qualityGate;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    @DataBoundSetter
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
     @Override
     public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, 
                        @Nonnull Launcher launcher, @Nonnull TaskListener listener) 
@@ -133,22 +169,7 @@ public class AgentScanBuilder extends Builder implements SimpleBuildStep {
         listener.getLogger().println("🔒 Starting AgentScan security analysis...");
         
         // Get API token from credentials
-        String apiToken = null;
-        if (credentialsId != null && !credentialsId.isEmpty()) {
-            List<StandardUsernamePasswordCredentials> credentials = CredentialsProvider.lookupCredentials(
-                StandardUsernamePasswordCredentials.class,
-                run.getParent(),
-                ACL.SYSTEM,
-                Collections.<DomainRequirement>emptyList()
-            );
-            
-            for (StandardUsernamePasswordCredentials cred : credentials) {
-                if (credentialsId.equals(cred.getId())) {
-                    apiToken = cred.getPassword().getPlainText();
-                    break;
-                }
-            }
-        }
+        String apiToken = lookupApiToken(run, credentialsId);
         
         if (apiToken == null || apiToken.isEmpty()) {
             listener.getLogger().println("⚠️  No API token found. Proceeding without authentication.");
@@ -166,50 +187,133 @@ public class AgentScanBuilder extends Builder implements SimpleBuildStep {
         options.setUploadSarif(uploadSarif);
         options.setGenerateReport(generateReport);
         options.setTimeoutMinutes(timeoutMinutes);
+        options.setIncrementalScan(incrementalScan);
+        options.setQualityGate(qualityGate);
+        options.setFailFast(failFast);
+        checkQualityGate(options);
+        
+        if (incrementalScan) {
+            service.setBaselines(ScanBaselineStore.forJob(run.getParent()));
+        }
+        service.setPreviousFindings(FingerprintSet.forPreviousBuild(run));
+        service.setAdmissionGroup(ScanAdmissionScheduler.groupOf(run.getParent()));
+        service.setEnvironment(run.getEnvironment(listener));
         
         // Execute scan
         ScanResult result = service.executeScan(workspace, options);
         
         // Process results
+        processResult(run, workspace, result, options, listener);
+    }
+    
+    static String lookupApiToken(Run<?, ?> run, String credentialsId) {
+        if (credentialsId == null || credentialsId.isEmpty()) {
+            return null;
+        }
+        
+        List<StandardUsernamePasswordCredentials> credentials = CredentialsProvider.lookupCredentials(
+            StandardUsernamePasswordCredentials.class,
+            run.getParent(),
+            ACL.SYSTEM,
+            Collections.<DomainRequirement>emptyList()
+        );
+        
+        for (StandardUsernamePasswordCredentials cred : credentials) {
+            if (credentialsId.equals(cred.getId())) {
+                return cred.getPassword().getPlainText();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Compiles the quality gate before any scan is submitted, so a typo fails the build at once.
+     */
+    static void checkQualityGate(ScanOptions options) throws AbortException {
+        try {
+            QualityGate.compile(options.getQualityGatePolicy());
+        } catch (IllegalArgumentException e) {
+            throw new AbortException("Invalid quality gate: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Generates reports for a finished scan and applies the quality gate to the build.
+     */
+    static void processResult(Run<?, ?> run, FilePath workspace, ScanResult result, ScanOptions options,
+                              TaskListener listener) throws IOException, InterruptedException {
         if (result.isSuccess()) {
             listener.getLogger().println("✅ Security scan completed successfully");
+            if (result.getSupersededBy() != null) {
+                listener.getLogger().println("🔗 Reporting the findings of newer commit "
+                    + AgentScanService.shortSha(result.getSupersededBy()) + ", whose scan superseded this build's");
+            }
+            FindingDiff diff = result.getDiff();
+            if (diff != null) {
+                if (diff.hasPrevious()) {
+                    listener.getLogger().println("🆕 " + diff.getNewCount() + " new, " + diff.getFixedCount()
+                        + " fixed and " + diff.getUnchangedCount() + " unchanged findings since the previous scan");
+                } else {
+                    listener.getLogger().println("ℹ️  No previous scan to compare with; all findings count as new");
+                }
+                diff.getFingerprints().write(new File(run.getRootDir(), FingerprintSet.FILE_NAME));
+            }
+            if (result.getSummary() != null) {
+                AgentScanSummaryAction summaryAction = new AgentScanSummaryAction(result.getSummary(), diff);
+                run.addOrReplaceAction(summaryAction);
+                ScanTrendIndex.forJob(run.getParent()).append(run, summaryAction);
+            }
+            // Keep the findings with the build; the workspace copy may be wiped
+            run.addOrReplaceAction(AgentScanFindingsAction.write(run, result.getFindings()));
             
             // Generate reports if requested
-            if (generateReport) {
+            if (options.isGenerateReport()) {
                 generateJenkinsReport(workspace, result, listener);
             }
             
             // Archive artifacts
             archiveResults(workspace, run, listener);
             
-            // Check if build should fail based on findings
-            if (shouldFailBuild(result, failOnSeverity)) {
-                listener.getLogger().println("❌ Build failed due to high severity security findings");
+            // Fail the build if the quality gate tripped while the findings were read
+            if (!result.getQualityGateViolations().isEmpty()) {
+                for (String violation : result.getQualityGateViolations()) {
+                    listener.getLogger().println("❌ Build failed by quality gate: " + violation);
+                }
                 run.setResult(hudson.model.Result.FAILURE);
             } else {
-                listener.getLogger().println("✅ No critical security issues found");
+                listener.getLogger().println("✅ Quality gate passed");
             }
             
+        } else if (result.getSupersededBy() != null) {
+            // A newer commit is being checked; this one is not worth a red build
+            listener.getLogger().println("⏭️  " + result.getErrorMessage());
+            run.setResult(hudson.model.Result.NOT_BUILT);
         } else {
             listener.getLogger().println("❌ Security scan failed: " + result.getErrorMessage());
             run.setResult(hudson.model.Result.FAILURE);
         }
     }
     
-    private void generateJenkinsReport(FilePath workspace, ScanResult result, TaskListener listener) 
+    private static void generateJenkinsReport(FilePath workspace, ScanResult result, TaskListener listener) 
             throws IOException, InterruptedException {
         
         listener.getLogger().println("📊 Generating security report...");
         
-        String htmlReport = HtmlReportGenerator.generateReport(result);
-        
-        FilePath reportFile = workspace.child("agentscan-security-report.html");
-        reportFile.write(htmlReport, "UTF-8");
+        if (result.getFindings().size() > AgentScanGlobalConfiguration.get().getPaginatedReportThreshold()) {
+            // Large reports load their findings page by page in the browser
+            PaginatedHtmlReport.write(result, workspace, "agentscan-security-report.html");
+        } else {
+            FilePath reportFile = workspace.child("agentscan-security-report.html");
+            try (Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(CompressedFileWriter.write(reportFile), StandardCharsets.UTF_8))) {
+                HtmlReportGenerator.generateReport(result, writer);
+            }
+        }
         
         listener.getLogger().println("📄 Security report generated: agentscan-security-report.html");
     }
     
-    private void archiveResults(FilePath workspace, Run<?, ?> run, TaskListener listener) 
+    private static void archiveResults(FilePath workspace, Run<?, ?> run, TaskListener listener) 
             throws IOException, InterruptedException {
         
         // Archive JSON and SARIF results
@@ -224,25 +328,6 @@ public class AgentScanBuilder extends Builder implements SimpleBuildStep {
         }
     }
     
-    private boolean shouldFailBuild(ScanResult result, String failOnSeverity) {
-        if (result.getSummary() == null) {
-            return false;
-        }
-        
-        ScanSummary summary = result.getSummary();
-        
-        switch (failOnSeverity.toLowerCase()) {
-            case "high":
-                return summary.getHighSeverityCount() > 0;
-            case "medium":
-                return summary.getHighSeverityCount() > 0 || summary.getMediumSeverityCount() > 0;
-            case "low":
-                return summary.getTotalFindings() > 0;
-            default:
-                return false;
-        }
-    }
-
     @Symbol("agentScan")
     @Extension
     public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
@@ -272,10 +357,20 @@ public class AgentScanBuilder extends Builder implements SimpleBuildStep {
             }
         }
 
+        public FormValidation doCheckQualityGate(@QueryParameter String value) {
+            try {
+                QualityGate.compile(value);
+                return FormValidation.ok();
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error(e.getMessage());
+            }
+        }
+
         public ListBoxModel doFillFailOnSeverityItems() {
             ListBoxModel items = new ListBoxModel();
-            items.add("High severity only", "high");
-            items.add("Medium and high severity", "medium");
+            items.add("Critical severity only", "critical");
+            items.add("High and critical severity", "high");
+            items.add("Medium severity and above", "medium");
             items.add("All findings", "low");
             items.add("Never fail", "never");
             return items;
@@ -0,0 +1,116 @@
+package dev.agentscan.jenkins;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps a build's findings in the build directory, so they outlive the workspace, and
+ * shows them a page at a time.
+ *
+ * <p>The findings are stored in a {@link FindingStore}; the build record only holds their
+ * number. Showing a page reads the store's dictionary and the blocks the page is in,
+ * never the whole result. The opened store is held softly, so paging through a build
+ * does not reread the dictionary and the heap can still reclaim it.</p>
+ */
+public class AgentScanFindingsAction implements RunAction2 {
+
+    static final int PAGE_SIZE = 100;
+
+    private final int findingCount;
+    private transient Run<?, ?> run;
+    private transient SoftReference<FindingStore> store;
+
+    AgentScanFindingsAction(int findingCount) {
+        this.findingCount = findingCount;
+    }
+
+    /**
+     * Stores {@code findings} in the run's build directory and returns the action showing them.
+     */
+    static AgentScanFindingsAction write(Run<?, ?> run, List<Finding> findings) throws IOException {
+        FindingStore.write(new File(run.getRootDir(), FindingStore.FILE_NAME), findings);
+        return new AgentScanFindingsAction(findings.size());
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    public int getFindingCount() {
+        return findingCount;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (findingCount + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    /**
+     * Parses a 1-based page number from a request parameter, falling back to the first page.
+     */
+    public int getPageNumber(String page) {
+        try {
+            return Math.max(1, Math.min(getPageCount(), Integer.parseInt(page)));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Returns the findings on a 1-based page, or none if the stored findings are gone.
+     */
+    public List<Finding> getPage(int page) throws IOException {
+        return read((page - 1) * PAGE_SIZE, page * PAGE_SIZE);
+    }
+
+    /**
+     * Reads the findings from index {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    List<Finding> read(int from, int to) throws IOException {
+        FindingStore findings = getStore();
+        return findings != null ? findings.read(from, to) : Collections.<Finding>emptyList();
+    }
+
+    private synchronized FindingStore getStore() throws IOException {
+        FindingStore opened = store != null ? store.get() : null;
+        if (opened == null && run != null) {
+            File file = new File(run.getRootDir(), FindingStore.FILE_NAME);
+            if (!file.isFile()) {
+                return null;
+            }
+            opened = FindingStore.open(file);
+            store = new SoftReference<>(opened);
+        }
+        return opened;
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "document.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "AgentScan Findings";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "agentscan-findings";
+    }
+}
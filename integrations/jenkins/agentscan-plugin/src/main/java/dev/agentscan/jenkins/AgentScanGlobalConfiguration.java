@@ -0,0 +1,343 @@
+package dev.agentscan.jenkins;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Controller-wide settings for the AgentScan plugin.
+ */
+@Extension
+@Symbol("agentScan")
+public class AgentScanGlobalConfiguration extends GlobalConfiguration {
+
+    private int connectTimeoutSeconds = 10;
+    private int socketTimeoutSeconds = 60;
+    private int connectionRequestTimeoutSeconds = 30;
+    private int maxConnectionsPerRoute = 50;
+    private int maxConnectionsTotal = 200;
+    private int idleConnectionTimeoutSeconds = 30;
+    private long pollInitialIntervalMillis = 500;
+    private long pollMaxIntervalMillis = 10000;
+    private double pollBackoffMultiplier = 2.0;
+    private int pollJitterPercent = 20;
+    private StatusTransport statusTransport = StatusTransport.SSE;
+    private int longPollWaitSeconds = 30;
+    private SupersedePolicy supersedePolicy = SupersedePolicy.KEEP;
+    private int maxConcurrentScansPerApi = 20;
+    private int admissionTimeoutMinutes = 60;
+    private String defaultBranches = "main master";
+    private boolean resultCacheEnabled = true;
+    private int resultCacheTtlMinutes = 1440;
+    private long resultCacheMaxFindings = 100000;
+    private int resultCacheMaxDiskMegabytes = 1024;
+    private int paginatedReportThreshold = 1000;
+
+    public AgentScanGlobalConfiguration() {
+        load();
+    }
+
+    public static AgentScanGlobalConfiguration get() {
+        return ExtensionList.lookupSingleton(AgentScanGlobalConfiguration.class);
+    }
+
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setConnectTimeoutSeconds(int connectTimeoutSeconds) {
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+        save();
+    }
+
+    public int getSocketTimeoutSeconds() {
+        return socketTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setSocketTimeoutSeconds(int socketTimeoutSeconds) {
+        this.socketTimeoutSeconds = socketTimeoutSeconds;
+        save();
+    }
+
+    public int getConnectionRequestTimeoutSeconds() {
+        return connectionRequestTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setConnectionRequestTimeoutSeconds(int connectionRequestTimeoutSeconds) {
+        this.connectionRequestTimeoutSeconds = connectionRequestTimeoutSeconds;
+        save();
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    @DataBoundSetter
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        save();
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    @DataBoundSetter
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+        save();
+    }
+
+    public int getIdleConnectionTimeoutSeconds() {
+        return idleConnectionTimeoutSeconds;
+    }
+
+    @DataBoundSetter
+    public void setIdleConnectionTimeoutSeconds(int idleConnectionTimeoutSeconds) {
+        this.idleConnectionTimeoutSeconds = idleConnectionTimeoutSeconds;
+        save();
+    }
+
+    public long getPollInitialIntervalMillis() {
+        return pollInitialIntervalMillis;
+    }
+
+    @DataBoundSetter
+    public void setPollInitialIntervalMillis(long pollInitialIntervalMillis) {
+        this.pollInitialIntervalMillis = pollInitialIntervalMillis;
+        save();
+    }
+
+    public long getPollMaxIntervalMillis() {
+        return pollMaxIntervalMillis;
+    }
+
+    @DataBoundSetter
+    public void setPollMaxIntervalMillis(long pollMaxIntervalMillis) {
+        this.pollMaxIntervalMillis = pollMaxIntervalMillis;
+        save();
+    }
+
+    public double getPollBackoffMultiplier() {
+        return pollBackoffMultiplier;
+    }
+
+    @DataBoundSetter
+    public void setPollBackoffMultiplier(double pollBackoffMultiplier) {
+        this.pollBackoffMultiplier = pollBackoffMultiplier;
+        save();
+    }
+
+    public int getPollJitterPercent() {
+        return pollJitterPercent;
+    }
+
+    @DataBoundSetter
+    public void setPollJitterPercent(int pollJitterPercent) {
+        this.pollJitterPercent = pollJitterPercent;
+        save();
+    }
+
+    public StatusTransport getStatusTransport() {
+        return statusTransport == null ? StatusTransport.POLL : statusTransport;
+    }
+
+    @DataBoundSetter
+    public void setStatusTransport(StatusTransport statusTransport) {
+        this.statusTransport = statusTransport;
+        save();
+    }
+
+    public int getLongPollWaitSeconds() {
+        return longPollWaitSeconds;
+    }
+
+    @DataBoundSetter
+    public void setLongPollWaitSeconds(int longPollWaitSeconds) {
+        this.longPollWaitSeconds = longPollWaitSeconds;
+        save();
+    }
+
+    public SupersedePolicy getSupersedePolicy() {
+        return supersedePolicy == null ? SupersedePolicy.KEEP : supersedePolicy;
+    }
+
+    @DataBoundSetter
+    public void setSupersedePolicy(SupersedePolicy supersedePolicy) {
+        this.supersedePolicy = supersedePolicy;
+        save();
+    }
+
+    public int getMaxConcurrentScansPerApi() {
+        return maxConcurrentScansPerApi;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentScansPerApi(int maxConcurrentScansPerApi) {
+        this.maxConcurrentScansPerApi = maxConcurrentScansPerApi;
+        save();
+    }
+
+    public int getAdmissionTimeoutMinutes() {
+        return admissionTimeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setAdmissionTimeoutMinutes(int admissionTimeoutMinutes) {
+        this.admissionTimeoutMinutes = admissionTimeoutMinutes;
+        save();
+    }
+
+    public String getDefaultBranches() {
+        return defaultBranches;
+    }
+
+    @DataBoundSetter
+    public void setDefaultBranches(String defaultBranches) {
+        this.defaultBranches = defaultBranches;
+        save();
+    }
+
+    public boolean isResultCacheEnabled() {
+        return resultCacheEnabled;
+    }
+
+    @DataBoundSetter
+    public void setResultCacheEnabled(boolean resultCacheEnabled) {
+        this.resultCacheEnabled = resultCacheEnabled;
+        save();
+    }
+
+    public int getResultCacheTtlMinutes() {
+        return resultCacheTtlMinutes;
+    }
+
+    @DataBoundSetter
+    public void setResultCacheTtlMinutes(int resultCacheTtlMinutes) {
+        this.resultCacheTtlMinutes = resultCacheTtlMinutes;
+        save();
+    }
+
+    public long getResultCacheMaxFindings() {
+        return resultCacheMaxFindings;
+    }
+
+    @DataBoundSetter
+    public void setResultCacheMaxFindings(long resultCacheMaxFindings) {
+        this.resultCacheMaxFindings = resultCacheMaxFindings;
+        save();
+    }
+
+    public int getResultCacheMaxDiskMegabytes() {
+        return resultCacheMaxDiskMegabytes;
+    }
+
+    @DataBoundSetter
+    public void setResultCacheMaxDiskMegabytes(int resultCacheMaxDiskMegabytes) {
+        this.resultCacheMaxDiskMegabytes = resultCacheMaxDiskMegabytes;
+        save();
+    }
+
+    public int getPaginatedReportThreshold() {
+        return paginatedReportThreshold;
+    }
+
+    @DataBoundSetter
+    public void setPaginatedReportThreshold(int paginatedReportThreshold) {
+        this.paginatedReportThreshold = paginatedReportThreshold;
+        save();
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        req.bindJSON(this, json);
+        save();
+        // Existing pools pick up the new limits; timeouts are read per request
+        AgentScanHttpClients.reconfigure(this);
+        return true;
+    }
+
+    public ListBoxModel doFillStatusTransportItems() {
+        ListBoxModel items = new ListBoxModel();
+        for (StatusTransport transport : StatusTransport.values()) {
+            items.add(transport.getDisplayName(), transport.name());
+        }
+        return items;
+    }
+
+    public ListBoxModel doFillSupersedePolicyItems() {
+        ListBoxModel items = new ListBoxModel();
+        for (SupersedePolicy policy : SupersedePolicy.values()) {
+            items.add(policy.getDisplayName(), policy.name());
+        }
+        return items;
+    }
+
+    public FormValidation doCheckMaxConnectionsPerRoute(@QueryParameter String value) {
+        return checkPositive(value);
+    }
+
+    public FormValidation doCheckMaxConnectionsTotal(@QueryParameter String value) {
+        return checkPositive(value);
+    }
+
+    public FormValidation doCheckMaxConcurrentScansPerApi(@QueryParameter String value) {
+        return checkPositive(value);
+    }
+
+    public FormValidation doCheckAdmissionTimeoutMinutes(@QueryParameter String value) {
+        return checkPositive(value);
+    }
+
+    public FormValidation doCheckResultCacheTtlMinutes(@QueryParameter String value) {
+        return checkPositive(value);
+    }
+
+    public FormValidation doCheckResultCacheMaxDiskMegabytes(@QueryParameter String value) {
+        return checkPositive(value);
+    }
+
+    public FormValidation doCheckPollBackoffMultiplier(@QueryParameter String value) {
+        try {
+            if (Double.parseDouble(value) < 1.0) {
+                return FormValidation.error("Multiplier must be at least 1.0");
+            }
+            return FormValidation.ok();
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Must be a valid number");
+        }
+    }
+
+    public FormValidation doCheckPollJitterPercent(@QueryParameter String value) {
+        try {
+            int percent = Integer.parseInt(value);
+            if (percent < 0 || percent > 100) {
+                return FormValidation.error("Jitter must be between 0 and 100");
+            }
+            return FormValidation.ok();
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Must be a valid number");
+        }
+    }
+
+    private static FormValidation checkPositive(String value) {
+        try {
+            if (Integer.parseInt(value) <= 0) {
+                return FormValidation.error("Must be a positive number");
+            }
+            return FormValidation.ok();
+        } catch (NumberFormatException e) {
+            return FormValidation.error("Must be a valid number");
+        }
+    }
+}
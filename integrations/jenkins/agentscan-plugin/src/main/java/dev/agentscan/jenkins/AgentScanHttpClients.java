@@ -0,0 +1,183 @@
+package dev.agentscan.jenkins;
+
+import hudson.Extension;
+import hudson.init.Terminator;
+import hudson.model.PeriodicWork;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-wide registry of pooled HTTP clients, one per AgentScan API URL.
+ *
+ * <p>Connections are kept alive and shared by every build talking to the same API, so
+ * concurrent scans reuse TCP connections and TLS sessions instead of opening new ones
+ * for each request.</p>
+ */
+final class AgentScanHttpClients {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentScanHttpClients.class.getName());
+
+    private static final ConcurrentMap<String, PooledClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private AgentScanHttpClients() {
+    }
+
+    /**
+     * Returns the shared client for the given API URL, creating it on first use.
+     * Callers must not close the returned client.
+     */
+    static CloseableHttpClient forApiUrl(String apiUrl) {
+        return CLIENTS.computeIfAbsent(apiKey(apiUrl), key -> new PooledClient(AgentScanGlobalConfiguration.get()))
+            .client;
+    }
+
+    /**
+     * Builds the per-request configuration from the current global timeouts.
+     */
+    static RequestConfig requestConfig() {
+        AgentScanGlobalConfiguration config = AgentScanGlobalConfiguration.get();
+        return RequestConfig.custom()
+            .setConnectTimeout((int) TimeUnit.SECONDS.toMillis(config.getConnectTimeoutSeconds()))
+            .setSocketTimeout((int) TimeUnit.SECONDS.toMillis(config.getSocketTimeoutSeconds()))
+            .setConnectionRequestTimeout((int) TimeUnit.SECONDS.toMillis(config.getConnectionRequestTimeoutSeconds()))
+            .build();
+    }
+
+    /**
+     * Applies changed pool limits to the clients that already exist.
+     */
+    static void reconfigure(AgentScanGlobalConfiguration config) {
+        for (PooledClient pooled : CLIENTS.values()) {
+            pooled.applyLimits(config);
+        }
+    }
+
+    @Terminator
+    public static void shutdown() {
+        for (PooledClient pooled : CLIENTS.values()) {
+            try {
+                pooled.client.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close AgentScan HTTP client", e);
+            }
+        }
+        CLIENTS.clear();
+    }
+
+    /**
+     * Returns the key under which per-API state is shared: the URL trimmed, in lower case and
+     * without trailing slashes, so that {@code https://api/} and {@code https://API} share
+     * one connection pool, request limiter and scan queue.
+     */
+    static String apiKey(String apiUrl) {
+        String key = apiUrl == null ? "" : apiUrl.trim().toLowerCase(Locale.ROOT);
+        while (key.endsWith("/")) {
+            key = key.substring(0, key.length() - 1);
+        }
+        return key;
+    }
+
+    private static final class PooledClient {
+
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient client;
+
+        PooledClient(AgentScanGlobalConfiguration config) {
+            // A single TLS socket factory per pool lets JSSE resume sessions on reconnect
+            Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(SSLContexts.createSystemDefault()))
+                .build();
+
+            this.connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+            this.connectionManager.setValidateAfterInactivity(2000);
+            applyLimits(config);
+
+            this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(new BoundedKeepAliveStrategy())
+                // Connections are not tied to a user principal, so any build may reuse them
+                .disableConnectionState()
+                .setDefaultRequestConfig(requestConfig())
+                .useSystemProperties()
+                .build();
+        }
+
+        void applyLimits(AgentScanGlobalConfiguration config) {
+            connectionManager.setMaxTotal(Math.max(1, config.getMaxConnectionsTotal()));
+            connectionManager.setDefaultMaxPerRoute(Math.max(1, config.getMaxConnectionsPerRoute()));
+        }
+
+        void evictIdle(int idleSeconds) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Honours the server's {@code Keep-Alive: timeout=N} header but never keeps a
+     * connection longer than the configured idle timeout.
+     */
+    private static final class BoundedKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long limit = TimeUnit.SECONDS.toMillis(AgentScanGlobalConfiguration.get().getIdleConnectionTimeoutSeconds());
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Math.min(limit, TimeUnit.SECONDS.toMillis(Long.parseLong(element.getValue())));
+                    } catch (NumberFormatException ignored) {
+                        // fall through to the configured limit
+                    }
+                }
+            }
+            return limit;
+        }
+    }
+
+    /**
+     * Closes pooled connections that have been idle longer than the configured timeout.
+     */
+    @Extension
+    public static final class IdleConnectionEvictor extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return TimeUnit.SECONDS.toMillis(15);
+        }
+
+        @Override
+        protected void doRun() {
+            int idleSeconds = AgentScanGlobalConfiguration.get().getIdleConnectionTimeoutSeconds();
+            for (PooledClient pooled : CLIENTS.values()) {
+                pooled.evictIdle(idleSeconds);
+            }
+        }
+    }
+}
@@ -1,78 +1,536 @@
 package dev.agentscan.jenkins;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.model.TaskListener;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Service class for interacting with the AgentScan API.
  */
 public class AgentScanService {
     
+    private static final Logger LOGGER = Logger.getLogger(AgentScanService.class.getName());
+    
+    /** Attempts per request, including the first; retries also need the retry budget. */
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_DELAY_MILLIS = 500;
+    private static final long RETRY_MAX_DELAY_MILLIS = 10000;
+    
+    /** API URLs that answered without a status stream; they are polled from then on. */
+    private static final Set<String> STREAM_UNSUPPORTED = ConcurrentHashMap.newKeySet();
+    
     private final String apiUrl;
     private final String apiToken;
     private final TaskListener listener;
     private final ObjectMapper objectMapper;
+    private final CloseableHttpClient httpClient;
+    private ScanBaselineStore baselines;
+    private FingerprintSet previousFindings;
+    private long deadline = Long.MAX_VALUE;
+    private BranchScanRegistry.Registration registration;
+    private String admissionGroup = "";
+    private ScanAdmissionScheduler.Ticket admission;
+    private EnvVars environment;
+    private boolean nonBlocking;
+    /** The request handed back by the last {@link RetryLaterException} and its next attempt. */
+    private ApiCall retriedCall;
+    private int retriedAttempt;
     
     public AgentScanService(String apiUrl, String apiToken, TaskListener listener) {
         this.apiUrl = apiUrl;
         this.apiToken = apiToken;
         this.listener = listener;
         this.objectMapper = new ObjectMapper();
+        this.httpClient = AgentScanHttpClients.forApiUrl(apiUrl);
+    }
+    
+    /**
+     * Sets where incremental scans keep the last scanned commit and its findings.
+     * Without a store every scan is a full scan.
+     */
+    void setBaselines(ScanBaselineStore baselines) {
+        this.baselines = baselines;
+    }
+    
+    /**
+     * Sets the fingerprints of the previous build's findings, to tell new findings from
+     * existing ones. Without them every finding is new.
+     */
+    void setPreviousFindings(FingerprintSet previousFindings) {
+        this.previousFindings = previousFindings;
+    }
+    
+    /**
+     * Sets when the whole scan, from submission to downloaded results, has to be done.
+     * Requests still running at that time are aborted.
+     */
+    void setDeadline(long deadline) {
+        this.deadline = deadline;
     }
     
-    public ScanResult executeScan(FilePath workspace, ScanOptions options) {
+    /**
+     * Sets the build's environment, which provides the branch and commit when the workspace
+     * does not, and tells pull request builds apart.
+     */
+    void setEnvironment(EnvVars environment) {
+        this.environment = environment;
+    }
+    
+    /**
+     * Makes requests throw a {@link RetryLaterException} instead of waiting for a request slot
+     * or for their next attempt, so that callers on the {@link ScanWaitScheduler} can
+     * reschedule themselves. Result downloads run on the processing pool and still wait.
+     */
+    void setNonBlocking(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+    
+    /**
+     * Sets the registration of the scan being waited for; its requests are aborted once it is superseded.
+     */
+    void setRegistration(BranchScanRegistry.Registration registration) {
+        this.registration = registration;
+    }
+    
+    /**
+     * Sets the group whose scans share the API's slots fairly with other groups.
+     */
+    void setAdmissionGroup(String admissionGroup) {
+        this.admissionGroup = admissionGroup;
+    }
+    
+    /**
+     * Sets the slot the next submission runs in; its priority is sent with the scan.
+     */
+    void setAdmission(ScanAdmissionScheduler.Ticket admission) {
+        this.admission = admission;
+    }
+    
+    /**
+     * Requests a slot for a scan of {@code git} from the {@link ScanAdmissionScheduler}.
+     */
+    ScanAdmissionScheduler.Ticket requestAdmission(GitMetadata git) {
+        ScanAdmissionScheduler.Ticket ticket = ScanAdmissionScheduler.get().request(apiUrl, admissionGroup, priority(git));
+        if (!ticket.isGranted()) {
+            listener.getLogger().println("🚥 Waiting for a free scan slot on the AgentScan API ("
+                + ticket.getQueuedAhead() + " scan(s) queued ahead)");
+        }
+        return ticket;
+    }
+    
+    /**
+     * Classifies the build by its branch. A branch that is not checked out was guessed, so the
+     * build's {@code BRANCH_NAME} is used instead, or none; multibranch pull request builds
+     * have a {@code CHANGE_ID}.
+     */
+    private ScanPriority priority(GitMetadata git) {
+        if (envOrDefault("CHANGE_ID", null) != null) {
+            return ScanPriority.PULL_REQUEST;
+        }
+        String branch = git.isBranchCheckedOut() ? git.getBranch() : envOrDefault("BRANCH_NAME", null);
+        return ScanPriority.of(branch, AgentScanGlobalConfiguration.get().getDefaultBranches());
+    }
+    
+    /**
+     * Returns how long a scan may wait in the queue for a slot.
+     */
+    static long admissionTimeoutMillis() {
+        return TimeUnit.MINUTES.toMillis(AgentScanGlobalConfiguration.get().getAdmissionTimeoutMinutes());
+    }
+    
+    /**
+     * Runs a scan of the workspace and waits for its results.
+     *
+     * @throws InterruptedException if the build was aborted; a submitted scan is cancelled on the server
+     */
+    public ScanResult executeScan(FilePath workspace, ScanOptions options) throws InterruptedException {
+        deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(options.getTimeoutMinutes());
         try {
-            listener.getLogger().println("🔍 Submitting scan request to AgentScan API...");
-            
-            // Create scan request
-            Map<String, Object> scanRequest = createScanRequest(workspace, options);
-            
-            // Submit scan to API
-            String jobId = submitScan(scanRequest);
-            if (jobId == null) {
-                return ScanResult.failure("Failed to submit scan to AgentScan API");
+            GitMetadata git = detectGitMetadata(workspace);
+            String cacheKey = ScanResultCache.key(apiUrl, git, options);
+            if (cacheKey == null) {
+                return scan(workspace, git, options);
             }
             
-            listener.getLogger().println("📋 Scan submitted with job ID: " + jobId);
-            
-            // Poll for results
-            ScanResult result = pollForResults(jobId, options.getTimeoutMinutes());
-            
-            // Save results to workspace
-            if (result.isSuccess()) {
-                saveResultsToWorkspace(workspace, result, options);
+            // Reuse a cached result or join an identical scan that is already running
+            ScanResultCache cache = ScanResultCache.get();
+            CompletableFuture<ScanResult> shared;
+            while ((shared = cache.claim(cacheKey)) != null) {
+                ScanResult sharedResult = awaitShared(shared, git, deadline);
+                if (sharedResult != null) {
+                    return reuseResults(sharedResult, git, workspace, options);
+                }
+                // The other scan was abandoned; try to take over
             }
             
-            return result;
+            ScanResult result = null;
+            try {
+                result = scan(workspace, git, options);
+                return result;
+            } finally {
+                if (result != null) {
+                    cache.complete(cacheKey, result);
+                } else {
+                    cache.abandon(cacheKey);
+                }
+            }
             
+        } catch (QualityGate.FailedException e) {
+            // Thrown past the cache so that builds waiting for this scan run their own gates
+            return ScanResult.failure(e.getMessage());
+        } catch (InterruptedException e) {
+            listener.getLogger().println("⏹️  Scan aborted");
+            throw e;
         } catch (Exception e) {
             listener.getLogger().println("❌ Error during scan execution: " + e.getMessage());
             return ScanResult.failure("Scan execution failed: " + e.getMessage());
         }
     }
     
-    private Map<String, Object> createScanRequest(FilePath workspace, ScanOptions options) throws IOException, InterruptedException {
+    private ScanResult scan(FilePath workspace, GitMetadata git, ScanOptions options)
+            throws IOException, InterruptedException {
+        // Scans of older commits of the branch give way to this one
+        registration = BranchScanRegistry.get().register(apiUrl, git, workspace);
+        if (registration == null) {
+            return admitAndScan(workspace, git, options);
+        }
+        ScanResult result = null;
+        try {
+            result = registration.isSuperseded()
+                ? superseded(null, workspace, options)
+                : admitAndScan(workspace, git, options);
+            return result;
+        } finally {
+            if (result != null) {
+                registration.complete(result);
+            } else {
+                registration.release();
+            }
+        }
+    }
+    
+    /**
+     * Waits for a scan slot, then submits the scan and waits for its results.
+     */
+    private ScanResult admitAndScan(FilePath workspace, GitMetadata git, ScanOptions options)
+            throws IOException, InterruptedException {
+        admission = requestAdmission(git);
+        try {
+            // A superseded scan leaves the queue at once
+            CompletableFuture<?> admitted = registration == null
+                ? admission.granted()
+                : CompletableFuture.anyOf(admission.granted(), registration.superseded());
+            try {
+                admitted.get(admissionTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException | CancellationException e) {
+                // Checked below
+            }
+            if (registration != null && registration.isSuperseded()) {
+                return superseded(null, workspace, options);
+            }
+            if (!admission.isGranted()) {
+                return ScanResult.failure("Scan timed out waiting for a free scan slot");
+            }
+            // Time in the queue does not count against the scan's timeout
+            deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(options.getTimeoutMinutes());
+            return submitAndWait(workspace, git, options);
+        } finally {
+            admission.release();
+        }
+    }
+    
+    private ScanResult submitAndWait(FilePath workspace, GitMetadata git, ScanOptions options)
+            throws IOException, InterruptedException {
+        // Submit scan to API
+        SubmittedScan scan = submit(workspace, git, options);
+        if (scan == null) {
+            return ScanResult.failure("Failed to submit scan to AgentScan API");
+        }
+        if (scan.isBaselineOnly()) {
+            return readBaselineResults(scan, workspace, options);
+        }
+        
+        // Wait for results; they are saved to the workspace while being downloaded
+        try {
+            return waitForResults(scan, workspace, options);
+        } catch (InterruptedException e) {
+            cancelScan(scan.getJobId(), "build aborted");
+            throw e;
+        } catch (IOException e) {
+            if (Thread.interrupted()) {
+                // The request was aborted because the build was
+                cancelScan(scan.getJobId(), "build aborted");
+                throw new InterruptedException("Scan aborted");
+            }
+            if (registration != null && registration.isSuperseded()) {
+                return superseded(scan.getJobId(), workspace, options);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                cancelScan(scan.getJobId(), "timed out");
+                return ScanResult.failure("Scan timed out after " + options.getTimeoutMinutes() + " minutes");
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Ends this build's scan after a scan of a newer commit of the branch superseded it,
+     * as the {@link SupersedePolicy} says.
+     *
+     * @param jobId the superseded scan's job, or {@code null} if it was not submitted
+     */
+    private ScanResult superseded(String jobId, FilePath workspace, ScanOptions options)
+            throws IOException, InterruptedException {
+        BranchScanRegistry.Registration newer = registration.getSupersededBy();
+        cancelSuperseded(jobId, newer);
+        if (admission != null) {
+            // Waiting for the newer scan takes no slot
+            admission.release();
+        }
+        if (AgentScanGlobalConfiguration.get().getSupersedePolicy() != SupersedePolicy.ATTACH) {
+            return supersededResult(newer);
+        }
+        
+        String newerCommit = shortSha(newer.getGit().getCommitSha());
+        listener.getLogger().println("🔗 Waiting for the scan of newer commit " + newerCommit + " instead");
+        ScanResult result;
+        try {
+            result = newer.getResult().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (CancellationException | ExecutionException e) {
+            result = null;
+        } catch (TimeoutException e) {
+            return ScanResult.failure("Scan timed out waiting for the scan of newer commit " + newerCommit);
+        }
+        return attachResults(newer, result, workspace, options);
+    }
+    
+    /**
+     * Logs that a scan of {@code newer} superseded this build's and cancels the superseded
+     * scan on the server.
+     *
+     * @param jobId the superseded scan's job, or {@code null} if it was not submitted
+     */
+    void cancelSuperseded(String jobId, BranchScanRegistry.Registration newer) {
+        String newerCommit = shortSha(newer.getGit().getCommitSha());
+        listener.getLogger().println("⏭️  Scan superseded by newer commit " + newerCommit + " of branch "
+            + newer.getGit().getBranch());
+        if (jobId != null) {
+            cancelScan(jobId, "superseded by commit " + newerCommit);
+        }
+    }
+    
+    /**
+     * Reports the result of a newer commit's scan as this build's, or ends the build as
+     * superseded if that scan has no findings to report.
+     *
+     * @param result the newer scan's result, or {@code null} if it ended without one
+     */
+    ScanResult attachResults(BranchScanRegistry.Registration newer, ScanResult result, FilePath workspace,
+                             ScanOptions options) throws IOException, InterruptedException {
+        if (result == null || !result.isSuccess()) {
+            return supersededResult(newer);
+        }
+        // A result that superseded the newer scan in turn keeps naming the newest commit
+        if (result.getSupersededBy() == null) {
+            result = result.withSupersededBy(newer.getGit().getCommitSha());
+        }
+        return reuseResults(result, newer.getGit(), workspace, options);
+    }
+    
+    static ScanResult supersededResult(BranchScanRegistry.Registration newer) {
+        GitMetadata git = newer.getGit();
+        return ScanResult.superseded("Superseded by the scan of newer commit " + shortSha(git.getCommitSha())
+            + " of branch " + git.getBranch(), git.getCommitSha());
+    }
+    
+    /**
+     * Asks the API to stop a scan that nobody waits for any more, so its scanners are freed
+     * at once. The request runs in the background; an aborted build does not wait for it.
+     */
+    void cancelScan(String jobId, String reason) {
+        listener.getLogger().println("🛑 Cancelling AgentScan job " + jobId + " (" + reason + ")");
+        HttpPost cancelRequest = newRequest("/api/v1/scans/" + jobId + "/cancel");
+        ScanWaitScheduler.schedule(() -> sendCancel(jobId, cancelRequest, 1), 0);
+    }
+    
+    /**
+     * Sends a cancel request on the {@link ScanWaitScheduler}, rescheduling it instead of
+     * waiting for a slot or a retry.
+     */
+    private void sendCancel(String jobId, HttpPost cancelRequest, int attempt) {
+        try (CloseableHttpResponse response = execute(cancelRequest, ApiCall.CANCEL, attempt, true)) {
+            EntityUtils.consume(response.getEntity());
+            int statusCode = response.getStatusLine().getStatusCode();
+            // 404 and 409: the scan is already gone or finished
+            if (statusCode >= 300 && statusCode != 404 && statusCode != 409) {
+                LOGGER.log(Level.WARNING, "Cancelling AgentScan job {0} failed: HTTP {1}",
+                    new Object[] {jobId, statusCode});
+            }
+        } catch (RetryLaterException e) {
+            ScanWaitScheduler.schedule(() -> sendCancel(jobId, cancelRequest, e.getNextAttempt()), e.getDelayMillis());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cancelling AgentScan job " + jobId + " failed", e);
+        }
+    }
+    
+    /**
+     * Waits for a cached or in-flight result.
+     *
+     * @return the result, or {@code null} if the scan being waited for was abandoned
+     */
+    private ScanResult awaitShared(CompletableFuture<ScanResult> shared, GitMetadata git, long deadline)
+            throws InterruptedException, ExecutionException {
+        if (shared.isDone() && !shared.isCancelled()) {
+            listener.getLogger().println("♻️  Reusing cached scan results for commit " + shortSha(git.getCommitSha()));
+        } else {
+            listener.getLogger().println("⏳ Waiting for an identical scan of commit " + shortSha(git.getCommitSha())
+                + " that is already running");
+        }
+        try {
+            return shared.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (CancellationException e) {
+            return null;
+        } catch (TimeoutException e) {
+            return ScanResult.failure("Scan timed out waiting for an identical scan");
+        }
+    }
+    
+    /**
+     * Writes the workspace result files for a result produced by another build.
+     */
+    ScanResult reuseResults(ScanResult result, GitMetadata git, FilePath workspace, ScanOptions options)
+            throws IOException, InterruptedException {
+        if (!result.isSuccess()) {
+            return result;
+        }
+        FindingDiff diff = new FindingDiff(previousFindings);
+        QualityGate.Evaluator gate = newQualityGate(options, diff);
+        try (WorkspaceResultFiles files = new WorkspaceResultFiles(objectMapper, workspace, options)) {
+            files.writeAll(result.getFindings(), diff, gate);
+        } catch (QualityGate.FailedException e) {
+            return ScanResult.failure(e.getMessage());
+        }
+        listener.getLogger().println("💾 Scan results saved to workspace");
+        // The build of a newer commit records the baseline for its own findings
+        if (options.isIncrementalScan() && result.getSupersededBy() == null) {
+            recordBaseline(git, result);
+        }
+        return result.withEvaluation(diff, gate.getViolations());
+    }
+    
+    /**
+     * Submits a scan of the workspace without waiting for it to finish.
+     *
+     * <p>With incremental scanning enabled and a baseline recorded for the branch, only the
+     * files changed since the baseline commit are submitted, and the baseline is pinned for
+     * merging the results. If no file changed, no request is made and the returned scan is
+     * {@linkplain SubmittedScan#isBaselineOnly() baseline only}.</p>
+     *
+     * @return the submitted scan, or {@code null} if the API rejected the request
+     */
+    SubmittedScan submit(FilePath workspace, GitMetadata git, ScanOptions options)
+            throws IOException, InterruptedException {
+        String baseCommit = null;
+        String baselinePin = null;
+        List<String> changedFiles = null;
+        if (options.isIncrementalScan() && baselines != null) {
+            String previousCommit = baselines.getCommit(git.getBranch());
+            String pin = previousCommit != null ? baselines.pin(git.getBranch(), previousCommit) : null;
+            if (pin != null) {
+                changedFiles = previousCommit.equals(git.getCommitSha())
+                    ? Collections.emptyList()
+                    : workspace.act(new ChangedFilesCallable(previousCommit, git.getCommitSha()));
+                if (changedFiles == null) {
+                    baselines.unpin(pin);
+                    listener.getLogger().println("ℹ️  Could not diff against " + shortSha(previousCommit)
+                        + ", running a full scan");
+                } else if (changedFiles.isEmpty()) {
+                    listener.getLogger().println("♻️  No files changed since commit " + shortSha(previousCommit)
+                        + " was scanned, reusing its results");
+                    return new SubmittedScan(null, git, previousCommit, pin, changedFiles);
+                } else {
+                    baseCommit = previousCommit;
+                    baselinePin = pin;
+                    listener.getLogger().println("🔀 Incremental scan of " + changedFiles.size()
+                        + " changed file(s) since " + shortSha(previousCommit));
+                }
+            }
+        }
+        
+        listener.getLogger().println("🔍 Submitting scan request to AgentScan API...");
+        
+        // Create scan request
+        Map<String, Object> scanRequest = createScanRequest(git, changedFiles, options);
+        
+        String jobId = null;
+        try {
+            jobId = submitScan(scanRequest);
+        } finally {
+            if (jobId == null) {
+                unpinBaseline(baselinePin);
+            }
+        }
+        if (jobId == null) {
+            return null;
+        }
+        listener.getLogger().println("📋 Scan submitted with job ID: " + jobId);
+        return new SubmittedScan(jobId, git, baseCommit, baselinePin, changedFiles);
+    }
+    
+    static String shortSha(String commitSha) {
+        return commitSha.length() > 12 ? commitSha.substring(0, 12) : commitSha;
+    }
+    
+    private Map<String, Object> createScanRequest(GitMetadata git, List<String> changedFiles, ScanOptions options) {
         Map<String, Object> request = new HashMap<>();
         
         // Basic scan configuration
-        request.put("repo_url", detectRepositoryUrl(workspace));
-        request.put("branch", detectBranch(workspace));
-        request.put("commit_sha", detectCommitSha(workspace));
-        request.put("scan_type", "full");
-        request.put("priority", 5); // Medium priority
+        request.put("repo_url", git.getRepositoryUrl());
+        request.put("branch", git.getBranch());
+        request.put("commit_sha", git.getCommitSha());
+        if (changedFiles != null) {
+            request.put("scan_type", "incremental");
+            request.put("changed_files", changedFiles);
+        } else {
+            request.put("scan_type", "full");
+        }
+        // Decided by the admission scheduler from the branch class and the time spent queued
+        request.put("priority", admission != null ? admission.getApiPriority() : ScanPriority.BRANCH.getApiPriority());
         
         // Scan options
         Map<String, Object> scanOptions = new HashMap<>();
@@ -90,200 +548,573 @@ public class AgentScanService {
         return request;
     }
     
-    private String detectRepositoryUrl(FilePath workspace) throws IOException, InterruptedException {
-        // Try to detect Git repository URL
-        FilePath gitConfig = workspace.child(".git/config");
-        if (gitConfig.exists()) {
-            String config = gitConfig.readToString();
-            // Simple regex to extract origin URL
-            String[] lines = config.split("\n");
-            for (String line : lines) {
-                if (line.trim().startsWith("url = ")) {
-                    return line.trim().substring(6);
-                }
+    /**
+     * Reads repository URL, branch and commit in a single round-trip to the agent, falling
+     * back to the build's environment variables for anything the Git directory does not provide.
+     */
+    GitMetadata detectGitMetadata(FilePath workspace) throws IOException, InterruptedException {
+        GitMetadata git = workspace.act(new GitMetadataCallable());
+        
+        String repositoryUrl = git.getRepositoryUrl();
+        if (repositoryUrl == null) {
+            repositoryUrl = envOrDefault("GIT_URL", "unknown-repository");
+        }
+        
+        String branch = git.getBranch();
+        boolean branchCheckedOut = branch != null;
+        if (branch == null) {
+            branch = envOrDefault("GIT_BRANCH", "main");
+            // Remove origin/ prefix if present
+            if (branch.startsWith("origin/")) {
+                branch = branch.substring(7);
             }
         }
         
-        // Fallback to Jenkins environment variables
-        String gitUrl = System.getenv("GIT_URL");
-        if (gitUrl != null && !gitUrl.isEmpty()) {
-            return gitUrl;
+        String commitSha = git.getCommitSha();
+        if (commitSha == null) {
+            commitSha = envOrDefault("GIT_COMMIT", "unknown-commit");
         }
         
-        return "unknown-repository";
+        return new GitMetadata(repositoryUrl, branch, commitSha, branchCheckedOut);
+    }
+    
+    private String envOrDefault(String name, String defaultValue) {
+        String value = environment == null ? null : environment.get(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
     }
     
-    private String detectBranch(FilePath workspace) throws IOException, InterruptedException {
-        // Try to detect current branch
-        FilePath gitHead = workspace.child(".git/HEAD");
-        if (gitHead.exists()) {
-            String head = gitHead.readToString().trim();
-            if (head.startsWith("ref: refs/heads/")) {
-                return head.substring(16);
+    private String submitScan(Map<String, Object> scanRequest) throws IOException {
+        HttpPost post = newRequest("/api/v1/scans");
+        post.setHeader("Content-Type", "application/json");
+        
+        // Set request body
+        String jsonBody = objectMapper.writeValueAsString(scanRequest);
+        post.setEntity(new StringEntity(jsonBody));
+        
+        // Execute request
+        try (RequestWatchdog watchdog = RequestWatchdog.watch(post, deadline);
+             CloseableHttpResponse response = execute(post, ApiCall.SUBMIT)) {
+            HttpEntity entity = response.getEntity();
+            String responseBody = EntityUtils.toString(entity);
+            
+            if (response.getStatusLine().getStatusCode() == 201) {
+                // Parse response to get job ID
+                Map<String, Object> responseMap = objectMapper.readValue(responseBody, Map.class);
+                return (String) responseMap.get("job_id");
+            } else {
+                listener.getLogger().println("❌ API request failed: " + response.getStatusLine().getStatusCode());
+                listener.getLogger().println("Response: " + responseBody);
+                return null;
             }
         }
+    }
+    
+    private ScanResult waitForResults(SubmittedScan scan, FilePath workspace, ScanOptions options)
+            throws IOException, InterruptedException {
+        String jobId = scan.getJobId();
+        StatusTransport transport = AgentScanGlobalConfiguration.get().getStatusTransport();
+        String apiKey = AgentScanHttpClients.apiKey(apiUrl);
         
-        // Fallback to Jenkins environment variables
-        String branch = System.getenv("GIT_BRANCH");
-        if (branch != null && !branch.isEmpty()) {
-            // Remove origin/ prefix if present
-            if (branch.startsWith("origin/")) {
-                return branch.substring(7);
+        if (transport == StatusTransport.SSE && !STREAM_UNSUPPORTED.contains(apiKey)) {
+            ScanStatusStream stream = new ScanStatusStream(httpClient, objectMapper);
+            HttpGet eventsRequest = newRequest(new HttpGet(), "/api/v1/scans/" + jobId + "/events");
+            ScanStatusStream.Outcome outcome = null;
+            try (RequestWatchdog watchdog = watch(eventsRequest)) {
+                outcome = stream.await(eventsRequest, deadline,
+                    status -> listener.getLogger().println("📊 Scan status: " + status));
+                if (outcome == ScanStatusStream.Outcome.UNSUPPORTED) {
+                    STREAM_UNSUPPORTED.add(apiKey);
+                    listener.getLogger().println("ℹ️  Status stream not available, falling back to polling");
+                } else if (outcome != ScanStatusStream.Outcome.TERMINAL) {
+                    listener.getLogger().println("ℹ️  Status stream closed early, falling back to polling");
+                }
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted() || (registration != null && registration.isSuperseded())) {
+                    // Aborted by the watchdog; not a failing stream
+                    throw e;
+                }
+                listener.getLogger().println("ℹ️  Status stream failed (" + e.getMessage() + "), falling back to polling");
+            }
+            // Outside the try, so that a failing download is not mistaken for a failing stream
+            if (outcome == ScanStatusStream.Outcome.TERMINAL) {
+                Map<String, Object> event = stream.getLastEvent();
+                Object errorMessage = event.get("error_message");
+                return handleTerminalStatus(scan, (String) event.get("status"),
+                    errorMessage instanceof String ? (String) errorMessage : null, workspace, options);
             }
-            return branch;
         }
         
-        return "main";
+        return pollForResults(scan, deadline, workspace, options, transport == StatusTransport.LONG_POLL);
     }
     
-    private String detectCommitSha(FilePath workspace) throws IOException, InterruptedException {
-        // Try to detect current commit SHA
-        FilePath gitHead = workspace.child(".git/HEAD");
-        if (gitHead.exists()) {
-            String head = gitHead.readToString().trim();
-            if (!head.startsWith("ref:")) {
-                return head; // Direct SHA
-            } else {
-                // Read from refs file
-                String refPath = head.substring(5); // Remove "ref: "
-                FilePath refFile = workspace.child(".git/" + refPath);
-                if (refFile.exists()) {
-                    return refFile.readToString().trim();
+    private ScanResult pollForResults(SubmittedScan scan, long deadline, FilePath workspace, ScanOptions options,
+                                      boolean longPoll) throws IOException, InterruptedException {
+        PollingBackoff backoff = PollingBackoff.fromConfiguration();
+        int longPollWaitSeconds = longPoll ? AgentScanGlobalConfiguration.get().getLongPollWaitSeconds() : 0;
+        String lastStatus = null;
+        
+        while (System.currentTimeMillis() < deadline) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Scan aborted");
+            }
+            if (registration != null && registration.isSuperseded()) {
+                throw new IOException("Scan superseded by a newer commit");
+            }
+            long requestStart = System.currentTimeMillis();
+            StatusCheck check;
+            try {
+                check = checkStatus(scan.getJobId(), longPollWaitSeconds);
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted() || (registration != null && registration.isSuperseded())) {
+                    throw e;
                 }
+                // The API is struggling; keep waiting instead of failing the build
+                listener.getLogger().println("⚠️  Status check failed (" + e.getMessage() + "), will try again");
+                check = new StatusCheck(null, null, -1);
+            }
+            
+            if (check.getStatus() != null && !Objects.equals(check.getStatus(), lastStatus)) {
+                listener.getLogger().println("📊 Scan status: " + check.getStatus());
+                lastStatus = check.getStatus();
+            }
+            if (check.isTerminal()) {
+                return handleTerminalStatus(scan, check.getStatus(), check.getErrorMessage(), workspace, options);
+            }
+            
+            // Still running, wait and retry without sleeping past the deadline. Time the server
+            // spent holding a long-poll request counts towards the delay.
+            long delay = backoff.nextDelay(check.getServerHintMillis()) - (System.currentTimeMillis() - requestStart);
+            long remainingMs = deadline - System.currentTimeMillis();
+            long waitMs = Math.max(0, Math.min(delay, remainingMs));
+            if (registration != null) {
+                // Wakes up early when a newer commit supersedes the scan
+                registration.awaitSuperseded(waitMs);
+            } else {
+                Thread.sleep(waitMs);
             }
         }
         
-        // Fallback to Jenkins environment variables
-        String commit = System.getenv("GIT_COMMIT");
-        if (commit != null && !commit.isEmpty()) {
-            return commit;
-        }
-        
-        return "unknown-commit";
+        cancelScan(scan.getJobId(), "timed out");
+        return ScanResult.failure("Scan timed out after " + options.getTimeoutMinutes() + " minutes");
     }
     
-    private String submitScan(Map<String, Object> scanRequest) throws IOException {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpPost post = new HttpPost(apiUrl + "/api/v1/scans");
+    /**
+     * Performs a single status request.
+     *
+     * @param longPollWaitSeconds how long the server may hold the request, or {@code 0} for a plain request
+     */
+    StatusCheck checkStatus(String jobId, int longPollWaitSeconds) throws IOException {
+        // Check scan status; in long-poll mode the server may hold the request until the status changes
+        String statusPath = "/api/v1/scans/" + jobId + "/status";
+        HttpPost statusRequest = longPollWaitSeconds > 0
+            ? newLongPollRequest(statusPath + "?wait=" + longPollWaitSeconds, longPollWaitSeconds)
+            : newRequest(statusPath);
+        
+        try (RequestWatchdog watchdog = watch(statusRequest);
+             CloseableHttpResponse response = execute(statusRequest,
+                 longPollWaitSeconds > 0 ? ApiCall.LONG_POLL : ApiCall.STATUS)) {
+            String responseBody = EntityUtils.toString(response.getEntity());
+            long serverHintMillis = PollingBackoff.retryAfterMillis(response);
             
-            // Set headers
-            post.setHeader("Content-Type", "application/json");
-            if (apiToken != null && !apiToken.isEmpty()) {
-                post.setHeader("Authorization", "Bearer " + apiToken);
+            if (response.getStatusLine().getStatusCode() == 200) {
+                Map<String, Object> statusMap = objectMapper.readValue(responseBody, Map.class);
+                long bodyHintMillis = PollingBackoff.bodyHintMillis(statusMap);
+                return new StatusCheck(
+                    (String) statusMap.get("status"),
+                    (String) statusMap.get("error_message"),
+                    bodyHintMillis >= 0 ? bodyHintMillis : serverHintMillis);
             }
             
-            // Set request body
-            String jsonBody = objectMapper.writeValueAsString(scanRequest);
-            post.setEntity(new StringEntity(jsonBody));
+            listener.getLogger().println("❌ Failed to get scan status: " + response.getStatusLine().getStatusCode());
+            return new StatusCheck(null, null, serverHintMillis);
+        }
+    }
+    
+    /**
+     * Turns a terminal status into a result, downloading the findings if the scan completed.
+     */
+    ScanResult handleTerminalStatus(SubmittedScan scan, String status, String errorMessage,
+                                    FilePath workspace, ScanOptions options) throws IOException, InterruptedException {
+        if ("completed".equals(status)) {
+            // Get full results
+            return getFullResults(scan, workspace, options);
+        }
+        unpinBaseline(scan.getBaselinePin());
+        return ScanResult.failure("Scan failed: " + errorMessage);
+    }
+    
+    /**
+     * Downloads the results and streams them through the summary counter and the workspace
+     * writers in a single pass, without buffering the response body.
+     */
+    private ScanResult getFullResults(SubmittedScan scan, FilePath workspace, ScanOptions options)
+            throws IOException, InterruptedException {
+        HttpPost resultsRequest = newRequest("/api/v1/scans/" + scan.getJobId() + "/results");
+        
+        try (RequestWatchdog watchdog = watch(resultsRequest);
+             CloseableHttpResponse response = execute(resultsRequest, ApiCall.RESULTS)) {
+            if (response.getStatusLine().getStatusCode() != 200) {
+                EntityUtils.consume(response.getEntity());
+                return ScanResult.failure("Failed to get scan results: " + response.getStatusLine().getStatusCode());
+            }
             
-            // Execute request
-            HttpResponse response = httpClient.execute(post);
-            HttpEntity entity = response.getEntity();
-            String responseBody = EntityUtils.toString(entity);
+            try (InputStream body = response.getEntity().getContent()) {
+                return readResults(scan, body, workspace, options);
+            }
+        }
+    }
+    
+    /**
+     * Answers a scan with no changed files from the baseline alone.
+     */
+    ScanResult readBaselineResults(SubmittedScan scan, FilePath workspace, ScanOptions options)
+            throws IOException, InterruptedException {
+        try (InputStream empty = new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8))) {
+            return readResults(scan, empty, workspace, options);
+        }
+    }
+    
+    private ScanResult readResults(SubmittedScan scan, InputStream body, FilePath workspace, ScanOptions options)
+            throws IOException, InterruptedException {
+        SummaryCounter summaryCounter = new SummaryCounter();
+        ScanResultCollector collector = new ScanResultCollector();
+        FindingDiff diff = new FindingDiff(previousFindings);
+        QualityGate.Evaluator gate = newQualityGate(options, diff);
+        List<FindingHandler> handlers = new ArrayList<>();
+        handlers.add(summaryCounter);
+        handlers.add(collector);
+        handlers.add(diff);
+        handlers.add(gate);
+        
+        try (WorkspaceResultFiles files = new WorkspaceResultFiles(objectMapper, workspace, options)) {
+            handlers.addAll(files.getWriters());
             
-            if (response.getStatusLine().getStatusCode() == 201) {
-                // Parse response to get job ID
-                Map<String, Object> responseMap = objectMapper.readValue(responseBody, Map.class);
-                return (String) responseMap.get("job_id");
+            if (scan.isIncremental()) {
+                ScanResultsParser.parse(objectMapper, body, Collections.singletonList(new BaselineMerger(
+                    objectMapper, baselines, scan.getBaselinePin(), scan.getBaseCommit(), scan.getChangedFiles(),
+                    handlers)));
             } else {
-                listener.getLogger().println("❌ API request failed: " + response.getStatusLine().getStatusCode());
-                listener.getLogger().println("Response: " + responseBody);
-                return null;
+                ScanResultsParser.parse(objectMapper, body, handlers);
             }
+        } finally {
+            unpinBaseline(scan.getBaselinePin());
         }
+        
+        listener.getLogger().println("💾 Scan results saved to workspace");
+        ScanResult result = ScanResult.success(collector.getFindings(), summaryCounter.getSummary());
+        if (options.isIncrementalScan() && !scan.isBaselineOnly()) {
+            recordBaseline(scan.getGit(), result);
+        }
+        return result.withEvaluation(diff, gate.getViolations());
     }
     
-    private ScanResult pollForResults(String jobId, int timeoutMinutes) throws IOException, InterruptedException {
-        long startTime = System.currentTimeMillis();
-        long timeoutMs = TimeUnit.MINUTES.toMillis(timeoutMinutes);
-        
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            while (System.currentTimeMillis() - startTime < timeoutMs) {
-                // Check scan status
-                HttpPost statusRequest = new HttpPost(apiUrl + "/api/v1/scans/" + jobId + "/status");
-                if (apiToken != null && !apiToken.isEmpty()) {
-                    statusRequest.setHeader("Authorization", "Bearer " + apiToken);
-                }
-                
-                HttpResponse response = httpClient.execute(statusRequest);
-                String responseBody = EntityUtils.toString(response.getEntity());
-                
-                if (response.getStatusLine().getStatusCode() == 200) {
-                    Map<String, Object> statusMap = objectMapper.readValue(responseBody, Map.class);
-                    String status = (String) statusMap.get("status");
-                    
-                    listener.getLogger().println("📊 Scan status: " + status);
-                    
-                    if ("completed".equals(status)) {
-                        // Get full results
-                        return getFullResults(httpClient, jobId);
-                    } else if ("failed".equals(status)) {
-                        String errorMessage = (String) statusMap.get("error_message");
-                        return ScanResult.failure("Scan failed: " + errorMessage);
+    /**
+     * Creates the evaluator of the job's quality gate for one result. The build is told as
+     * soon as a condition trips; with fail fast, reading the results stops there with a
+     * {@link QualityGate.FailedException}.
+     */
+    private QualityGate.Evaluator newQualityGate(ScanOptions options, FindingDiff diff) {
+        return QualityGate.compile(options.getQualityGatePolicy()).newEvaluator((condition, finding) -> {
+            listener.getLogger().println("🚦 Quality gate tripped: " + condition + ", reached at "
+                + (finding.getFilePath() != null ? finding.getFilePath() : "unknown") + ":" + finding.getLineNumber());
+            if (options.isFailFast()) {
+                listener.getLogger().println("⏹️  Fail fast: no longer reading scan results");
+                throw new QualityGate.FailedException("Quality gate failed: " + condition);
+            }
+        }, diff);
+    }
+    
+    private void unpinBaseline(String pin) {
+        if (pin == null || baselines == null) {
+            return;
+        }
+        try {
+            baselines.unpin(pin);
+        } catch (IOException e) {
+            // Deleted with the other stale pins later
+        }
+    }
+    
+    /**
+     * Makes a successful scan the baseline for the next incremental scan of its branch.
+     */
+    private void recordBaseline(GitMetadata git, ScanResult result) {
+        if (baselines == null) {
+            return;
+        }
+        try {
+            baselines.save(git.getBranch(), git.getCommitSha(), result.getFindings());
+        } catch (IOException e) {
+            // The next build simply runs a full scan
+            listener.getLogger().println("⚠️  Could not record scan baseline: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Watches a request for the build being aborted, the deadline and the scan being superseded.
+     */
+    private RequestWatchdog watch(HttpRequestBase request) {
+        return RequestWatchdog.watch(request, deadline, registration == null ? null : registration.superseded());
+    }
+    
+    private HttpPost newRequest(String path) {
+        return newRequest(new HttpPost(), path);
+    }
+    
+    /**
+     * Creates a request against the shared client with the configured timeouts and credentials.
+     * Responses must be closed so the connection goes back to the pool.
+     */
+    private <T extends HttpRequestBase> T newRequest(T request, String path) {
+        request.setURI(URI.create(apiUrl + path));
+        request.setConfig(AgentScanHttpClients.requestConfig());
+        if (apiToken != null && !apiToken.isEmpty()) {
+            request.setHeader("Authorization", "Bearer " + apiToken);
+        }
+        return request;
+    }
+    
+    /**
+     * Sends a request within the API's {@link AdaptiveConcurrencyLimiter} and retries it,
+     * while the retry budget lasts, if the API is overloaded. Only idempotent requests are
+     * retried after I/O errors and gateway errors; a 429 or 503 means the server did not act
+     * on the request, so that is retried for every kind. The slot in the limit is held until
+     * the response headers arrive.
+     *
+     * <p>In {@linkplain #setNonBlocking non-blocking} mode the request is handed back with a
+     * {@link RetryLaterException} where it would wait; calling again with the same kind of
+     * request continues with the next attempt.</p>
+     *
+     * @return the response, which may still have an overload status if retrying gave up
+     */
+    private CloseableHttpResponse execute(HttpRequestBase request, ApiCall call) throws IOException {
+        boolean retryLater = nonBlocking && call != ApiCall.RESULTS;
+        int firstAttempt = retryLater && call == retriedCall ? retriedAttempt : 1;
+        retriedCall = null;
+        try {
+            return execute(request, call, firstAttempt, retryLater);
+        } catch (RetryLaterException e) {
+            retriedCall = call;
+            retriedAttempt = e.getNextAttempt();
+            throw e;
+        }
+    }
+    
+    private CloseableHttpResponse execute(HttpRequestBase request, ApiCall call, int firstAttempt, boolean retryLater)
+            throws IOException {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.forApi(apiUrl);
+        // A cancel is sent after the scan's end, whenever it was
+        long end = call == ApiCall.CANCEL ? Long.MAX_VALUE : deadline;
+        long maxWaitMillis = TimeUnit.SECONDS.toMillis(
+            AgentScanGlobalConfiguration.get().getConnectionRequestTimeoutSeconds());
+        for (int attempt = firstAttempt; ; attempt++) {
+            if (System.currentTimeMillis() >= end) {
+                throw deadlinePassed();
+            }
+            if (call.limited) {
+                boolean acquired;
+                if (retryLater) {
+                    acquired = limiter.tryAcquire(attempt > 1);
+                    if (!acquired) {
+                        // The deadline bounds how often the caller comes back
+                        throw new RetryLaterException(RETRY_BASE_DELAY_MILLIS, attempt);
                     }
-                    
-                    // Still running, wait and retry
-                    Thread.sleep(10000); // Wait 10 seconds
                 } else {
-                    listener.getLogger().println("❌ Failed to get scan status: " + response.getStatusLine().getStatusCode());
-                    Thread.sleep(10000);
+                    try {
+                        acquired = limiter.acquire(Math.min(maxWaitMillis, end - System.currentTimeMillis()), attempt > 1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for a request slot");
+                    }
+                }
+                if (!acquired) {
+                    if (System.currentTimeMillis() >= end) {
+                        throw deadlinePassed();
+                    }
+                    throw new IOException("AgentScan API is overloaded: no request slot became free within "
+                        + TimeUnit.MILLISECONDS.toSeconds(maxWaitMillis) + " seconds");
                 }
             }
             
-            return ScanResult.failure("Scan timed out after " + timeoutMinutes + " minutes");
+            long sentAt = System.currentTimeMillis();
+            CloseableHttpResponse response = null;
+            IOException failure = null;
+            try {
+                response = httpClient.execute(request);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                if (call.limited) {
+                    limiter.release();
+                }
+            }
+            
+            String problem;
+            long delay = -1;
+            if (failure != null) {
+                if (request.isAborted() || Thread.currentThread().isInterrupted()) {
+                    // Aborted by the watchdog; says nothing about the API
+                    throw failure;
+                }
+                if (failure instanceof SocketTimeoutException || failure instanceof ConnectTimeoutException) {
+                    limiter.onOverload();
+                }
+                if (!call.idempotent) {
+                    throw failure;
+                }
+                problem = failure.getMessage();
+            } else {
+                int statusCode = response.getStatusLine().getStatusCode();
+                boolean overloaded = statusCode == 429 || statusCode == 503;
+                if (!overloaded && !(call.idempotent && (statusCode == 502 || statusCode == 504))) {
+                    limiter.onSuccess(call.timed ? System.currentTimeMillis() - sentAt : -1);
+                    return response;
+                }
+                if (overloaded) {
+                    limiter.onOverload();
+                }
+                problem = "HTTP " + statusCode;
+                delay = PollingBackoff.retryAfterMillis(response);
+            }
+            
+            if (delay < 0) {
+                long backoff = Math.min(RETRY_MAX_DELAY_MILLIS, RETRY_BASE_DELAY_MILLIS << (attempt - 1));
+                delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            }
+            // A longer Retry-After is left to the caller, e.g. as the next poll's delay
+            if (attempt >= MAX_ATTEMPTS || delay > RETRY_MAX_DELAY_MILLIS || System.currentTimeMillis() + delay >= end
+                    || !limiter.tryRetry()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            if (response != null) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                response.close();
+            }
+            if (call == ApiCall.CANCEL) {
+                LOGGER.log(Level.FINE, "AgentScan API request failed ({0}), retrying", problem);
+            } else {
+                listener.getLogger().println("⏳ AgentScan API request failed (" + problem + "), retrying in "
+                    + delay + " ms");
+            }
+            if (retryLater) {
+                throw new RetryLaterException(delay, attempt + 1);
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
         }
     }
     
-    private ScanResult getFullResults(CloseableHttpClient httpClient, String jobId) throws IOException {
-        HttpPost resultsRequest = new HttpPost(apiUrl + "/api/v1/scans/" + jobId + "/results");
-        if (apiToken != null && !apiToken.isEmpty()) {
-            resultsRequest.setHeader("Authorization", "Bearer " + apiToken);
-        }
+    private HttpPost newLongPollRequest(String path, int waitSeconds) {
+        HttpPost request = newRequest(path);
+        RequestConfig config = request.getConfig();
+        request.setConfig(RequestConfig.copy(config)
+            .setSocketTimeout(config.getSocketTimeout() + (int) TimeUnit.SECONDS.toMillis(waitSeconds))
+            .build());
+        return request;
+    }
+    
+    /**
+     * Kinds of API requests, which decide how they are limited and retried.
+     */
+    private enum ApiCall {
         
-        HttpResponse response = httpClient.execute(resultsRequest);
-        String responseBody = EntityUtils.toString(response.getEntity());
+        /** Creates a scan; resending it after an I/O error could create a second one. */
+        SUBMIT(false, true, false),
         
-        if (response.getStatusLine().getStatusCode() == 200) {
-            // Parse results
-            Map<String, Object> resultsMap = objectMapper.readValue(responseBody, Map.class);
-            return ScanResult.success(resultsMap);
-        } else {
-            return ScanResult.failure("Failed to get scan results: " + response.getStatusLine().getStatusCode());
+        /** A plain status request, whose latency shows how loaded the API is. */
+        STATUS(true, true, true),
+        
+        /** Held open by the server on purpose, so it takes no slot and its latency means nothing. */
+        LONG_POLL(true, false, false),
+        
+        /** Its latency grows with the number of findings. */
+        RESULTS(true, true, false),
+        
+        CANCEL(true, true, true);
+        
+        final boolean idempotent;
+        final boolean limited;
+        final boolean timed;
+        
+        ApiCall(boolean idempotent, boolean limited, boolean timed) {
+            this.idempotent = idempotent;
+            this.limited = limited;
+            this.timed = timed;
         }
     }
     
-    private void saveResultsToWorkspace(FilePath workspace, ScanResult result, ScanOptions options) 
-            throws IOException, InterruptedException {
+    private static IOException deadlinePassed() {
+        return new IOException("Scan timed out before the AgentScan API request could be sent");
+    }
+    
+    /**
+     * Thrown in {@linkplain #setNonBlocking non-blocking} mode instead of waiting for a request
+     * slot or a retry; the caller reschedules the request after {@link #getDelayMillis()}.
+     */
+    static final class RetryLaterException extends IOException {
+        
+        private static final long serialVersionUID = 1L;
         
-        // Save JSON results
-        String jsonResults = objectMapper.writeValueAsString(result.getResultsData());
-        FilePath jsonFile = workspace.child("agentscan-results.json");
-        jsonFile.write(jsonResults, "UTF-8");
+        private final long delayMillis;
+        private final int nextAttempt;
         
-        // Save SARIF results if requested
-        if (options.getOutputFormat().contains("sarif")) {
-            String sarifResults = convertToSarif(result.getResultsData());
-            FilePath sarifFile = workspace.child("agentscan-results.sarif");
-            sarifFile.write(sarifResults, "UTF-8");
+        RetryLaterException(long delayMillis, int nextAttempt) {
+            super("AgentScan API request deferred for " + delayMillis + " ms");
+            this.delayMillis = delayMillis;
+            this.nextAttempt = nextAttempt;
         }
         
-        listener.getLogger().println("💾 Scan results saved to workspace");
+        long getDelayMillis() {
+            return delayMillis;
+        }
+        
+        int getNextAttempt() {
+            return nextAttempt;
+        }
     }
     
-    private String convertToSarif(Map<String, Object> resultsData) {
-        // Convert AgentScan results to SARIF format
-        // This is a simplified implementation
-        Map<String, Object> sarif = new HashMap<>();
-        sarif.put("version", "2.1.0");
-        sarif.put("$schema", "https://raw.githubusercontent.com/oasis-tcs/sarif-spec/master/Schemata/sarif-schema-2.1.0.json");
+    /**
+     * Outcome of a single status request.
+     */
+    static final class StatusCheck {
         
-        // Add runs array with tool information and results
-        // Implementation would convert findings to SARIF format
+        private final String status;
+        private final String errorMessage;
+        private final long serverHintMillis;
         
-        try {
-            return objectMapper.writeValueAsString(sarif);
-        } catch (Exception e) {
-            return "{}"; // Return empty SARIF on error
+        StatusCheck(String status, String errorMessage, long serverHintMillis) {
+            this.status = status;
+            this.errorMessage = errorMessage;
+            this.serverHintMillis = serverHintMillis;
+        }
+        
+        /**
+         * Returns the reported status, or {@code null} if the request failed.
+         */
+        String getStatus() {
+            return status;
+        }
+        
+        String getErrorMessage() {
+            return errorMessage;
+        }
+        
+        /**
+         * Returns the delay requested by the server, or a negative value if none.
+         */
+        long getServerHintMillis() {
+            return serverHintMillis;
+        }
+        
+        boolean isTerminal() {
+            return "completed".equals(status) || "failed".equals(status);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+package dev.agentscan.jenkins;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+
+/**
+ * Pipeline step that runs an AgentScan scan without occupying an executor thread while
+ * the scan is in progress.
+ */
+public class AgentScanStep extends Step {
+
+    private String apiUrl = "https://api.agentscan.dev";
+    private String credentialsId;
+    private String failOnSeverity = "high";
+    private String excludePaths = "";
+    private String includePaths = "";
+    private String outputFormat = "json,sarif";
+    private boolean uploadSarif = true;
+    private boolean generateReport = true;
+    private int timeoutMinutes = 30;
+    private boolean incrementalScan = false;
+    private String qualityGate = "";
+    private boolean failFast = false;
+
+    @DataBoundConstructor
+    public AgentScanStep() {
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    @DataBoundSetter
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    public String getCredentialsId() {
+        return credentialsId;
+    }
+
+    @DataBoundSetter
+    public void setCredentialsId(String credentialsId) {
+        this.credentialsId = credentialsId;
+    }
+
+    public String getFailOnSeverity() {
+        return failOnSeverity;
+    }
+
+    @DataBoundSetter
+    public void setFailOnSeverity(String failOnSeverity) {
+        this.failOnSeverity = failOnSeverity;
+    }
+
+    public String getExcludePaths() {
+        return excludePaths;
+    }
+
+    @DataBoundSetter
+    public void setExcludePaths(String excludePaths) {
+        this.excludePaths = excludePaths;
+    }
+
+    public String getIncludePaths() {
+        return includePaths;
+    }
+
+    @DataBoundSetter
+    public void setIncludePaths(String includePaths) {
+        this.includePaths = includePaths;
+    }
+
+    public String getOutputFormat() {
+        return outputFormat;
+    }
+
+    @DataBoundSetter
+    public void setOutputFormat(String outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    public boolean isUploadSarif() {
+        return uploadSarif;
+    }
+
+    @DataBoundSetter
+    public void setUploadSarif(boolean uploadSarif) {
+        this.uploadSarif = uploadSarif;
+    }
+
+    public boolean isGenerateReport() {
+        return generateReport;
+    }
+
+    @DataBoundSetter
+    public void setGenerateReport(boolean generateReport) {
+        this.generateReport = generateReport;
+    }
+
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    public boolean isIncrementalScan() {
+        return incrementalScan;
+    }
+
+    @DataBoundSetter
+    public void setIncrementalScan(boolean incrementalScan) {
+        this.incrementalScan = incrementalScan;
+    }
+
+    public String getQualityGate() {
+        return qualityGate;
+    }
+
+    @DataBoundSetter
+    public void setQualityGate(String qualityGate) {
+        this.qualityGate = qualityGate;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    @DataBoundSetter
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        ScanOptions options = new ScanOptions();
+        options.setFailOnSeverity(failOnSeverity);
+        options.setExcludePaths(excludePaths);
+        options.setIncludePaths(includePaths);
+        options.setOutputFormat(outputFormat);
+        options.setUploadSarif(uploadSarif);
+        options.setGenerateReport(generateReport);
+        options.setTimeoutMinutes(timeoutMinutes);
+        options.setIncrementalScan(incrementalScan);
+        options.setQualityGate(qualityGate);
+        options.setFailFast(failFast);
+        AgentScanBuilder.checkQualityGate(options);
+        return new AgentScanStepExecution(context, apiUrl, credentialsId, options);
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends StepDescriptor {
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(Run.class, FilePath.class, TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "agentScanAsync";
+        }
+
+        @Override
+        @Nonnull
+        public String getDisplayName() {
+            return "AgentScan Security Scanner (asynchronous)";
+        }
+
+        public FormValidation doCheckQualityGate(@QueryParameter String value) {
+            return ExtensionList.lookupSingleton(AgentScanBuilder.DescriptorImpl.class).doCheckQualityGate(value);
+        }
+
+        public ListBoxModel doFillFailOnSeverityItems() {
+            return ExtensionList.lookupSingleton(AgentScanBuilder.DescriptorImpl.class).doFillFailOnSeverityItems();
+        }
+
+        public ListBoxModel doFillCredentialsIdItems() {
+            return ExtensionList.lookupSingleton(AgentScanBuilder.DescriptorImpl.class).doFillCredentialsIdItems();
+        }
+    }
+}
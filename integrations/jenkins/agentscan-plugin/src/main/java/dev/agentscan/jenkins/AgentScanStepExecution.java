@@ -0,0 +1,425 @@
+package dev.agentscan.jenkins;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous execution of {@link AgentScanStep}.
+ *
+ * <p>The step returns immediately and each status check runs as a short task on the
+ * {@link ScanWaitScheduler}. Submitting, which reads Git metadata and diffs the workspace on
+ * the agent, and downloading and processing the results run on its separate processing pool.
+ * The submitted scan and deadline are persisted with the pipeline, so waiting resumes after
+ * a controller restart. Requests that would wait for a slot in the
+ * {@link AdaptiveConcurrencyLimiter} or for a retry are rescheduled instead.</p>
+ *
+ * <p>Builds wait for a slot from the {@link ScanAdmissionScheduler} before submitting, again
+ * without holding a thread. Builds of a commit that is cached, or already being scanned by
+ * another build, wait on that result instead of submitting their own scan. A scan superseded
+ * by a newer commit of its branch is cancelled; the {@link BranchScanRegistry} does not
+ * survive a restart, so resumed scans run to their end.</p>
+ */
+class AgentScanStepExecution extends StepExecution {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String apiUrl;
+    private final String credentialsId;
+    private final ScanOptions options;
+    private SubmittedScan scan;
+    private long deadline;
+    /** Result cache key this execution is scanning for, if it owns that scan. */
+    private String cacheKey;
+
+    private transient volatile Future<?> task;
+    private transient AgentScanService service;
+    private transient PollingBackoff backoff;
+    private transient String lastStatus;
+    private transient volatile boolean stopped;
+    private transient BranchScanRegistry.Registration registration;
+    private transient ScanAdmissionScheduler.Ticket admission;
+
+    AgentScanStepExecution(StepContext context, String apiUrl, String credentialsId, ScanOptions options) {
+        super(context);
+        this.apiUrl = apiUrl;
+        this.credentialsId = credentialsId;
+        this.options = options;
+    }
+
+    @Override
+    public boolean start() {
+        task = ScanWaitScheduler.process(this::submit);
+        return false;
+    }
+
+    @Override
+    public void onResume() {
+        task = scan == null ? ScanWaitScheduler.process(this::submit) : ScanWaitScheduler.schedule(this::poll, 0);
+    }
+
+    @Override
+    public void stop(Throwable cause) throws Exception {
+        stopped = true;
+        Future<?> current = task;
+        if (current != null) {
+            // Interrupting a running poll or download aborts its request
+            current.cancel(true);
+        }
+        if (scan != null) {
+            try {
+                getService().cancelScan(scan.getJobId(), "build aborted");
+            } catch (Exception e) {
+                // The build is stopped either way; the scan then runs to its own end
+            }
+        }
+        fail(cause);
+    }
+
+    @Override
+    public String getStatus() {
+        if (scan != null) {
+            return "waiting for AgentScan job " + scan.getJobId();
+        }
+        ScanAdmissionScheduler.Ticket ticket = admission;
+        return ticket != null && !ticket.isGranted() ? "waiting for a free scan slot" : "submitting scan";
+    }
+
+    private void submit() {
+        try {
+            getContext().get(TaskListener.class).getLogger().println("🔒 Starting AgentScan security analysis...");
+            if (deadline == 0) {
+                // Taking over an abandoned scan keeps the original deadline
+                deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(options.getTimeoutMinutes());
+            }
+            FilePath workspace = getContext().get(FilePath.class);
+            GitMetadata git = getService().detectGitMetadata(workspace);
+
+            String key = ScanResultCache.key(apiUrl, git, options);
+            if (key != null) {
+                CompletableFuture<ScanResult> shared = ScanResultCache.get().claim(key);
+                if (shared != null) {
+                    awaitShared(shared, git);
+                    return;
+                }
+                cacheKey = key;
+            }
+
+            // Scans of older commits of the branch give way to this one
+            registration = BranchScanRegistry.get().register(apiUrl, git, workspace);
+            if (registration != null) {
+                getService().setRegistration(registration);
+                if (registration.isSuperseded()) {
+                    superseded(null);
+                    return;
+                }
+            }
+
+            // Wait for a scan slot without holding a thread; a superseded scan leaves the queue at once
+            admission = getService().requestAdmission(git);
+            CompletableFuture<?> admitted = registration == null
+                ? admission.granted()
+                : CompletableFuture.anyOf(admission.granted(), registration.superseded());
+            ScanAdmissionScheduler.Ticket ticket = admission;
+            ScheduledFuture<?> timeout = ScanWaitScheduler.schedule(ticket::cancel, AgentScanService.admissionTimeoutMillis());
+            admitted.whenComplete((result, failure) -> {
+                timeout.cancel(false);
+                // Submitting diffs the workspace on the agent
+                task = ScanWaitScheduler.process(() -> submitAdmitted(git));
+            });
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    private void submitAdmitted(GitMetadata git) {
+        if (stopped) {
+            return;
+        }
+        try {
+            if (registration != null && registration.isSuperseded()) {
+                superseded(null);
+                return;
+            }
+            if (!admission.isGranted()) {
+                finishLater(() -> ScanResult.failure("Scan timed out waiting for a free scan slot"));
+                return;
+            }
+            // Time in the queue does not count against the scan's timeout
+            deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(options.getTimeoutMinutes());
+            getService().setDeadline(deadline);
+            getService().setAdmission(admission);
+            sendSubmit(git);
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    /**
+     * Submits the scan, coming back later instead of waiting while the API is busy.
+     */
+    private void sendSubmit(GitMetadata git) {
+        if (stopped) {
+            return;
+        }
+        try {
+            if (registration != null && registration.isSuperseded()) {
+                superseded(null);
+                return;
+            }
+            FilePath workspace = getContext().get(FilePath.class);
+            SubmittedScan submitted;
+            try {
+                submitted = getService().submit(workspace, git, options);
+            } catch (AgentScanService.RetryLaterException e) {
+                if (System.currentTimeMillis() + e.getDelayMillis() >= deadline) {
+                    finishLater(() -> ScanResult.failure("Scan timed out after " + options.getTimeoutMinutes()
+                        + " minutes before it could be submitted"));
+                } else {
+                    processLater(() -> sendSubmit(git), e.getDelayMillis());
+                }
+                return;
+            }
+            if (submitted == null) {
+                finishLater(() -> ScanResult.failure("Failed to submit scan to AgentScan API"));
+                return;
+            }
+            if (submitted.isBaselineOnly()) {
+                finishLater(() -> getService().readBaselineResults(submitted, workspace, options));
+                return;
+            }
+            scan = submitted;
+            getContext().saveState();
+            scheduleNextPoll(-1);
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    /**
+     * Finishes with the result of a cached or identical running scan without blocking a thread.
+     */
+    private void awaitShared(CompletableFuture<ScanResult> shared, GitMetadata git) throws Exception {
+        TaskListener listener = getContext().get(TaskListener.class);
+        String commit = AgentScanService.shortSha(git.getCommitSha());
+        if (!shared.isDone()) {
+            listener.getLogger().println("⏳ Waiting for an identical scan of commit " + commit + " that is already running");
+        }
+        shared.whenComplete((result, failure) -> task = ScanWaitScheduler.schedule(() -> {
+            if (stopped) {
+                return;
+            }
+            try {
+                if (failure instanceof CancellationException) {
+                    // The other scan was abandoned; try to take over
+                    task = ScanWaitScheduler.process(this::submit);
+                } else if (failure != null) {
+                    getContext().onFailure(failure);
+                } else {
+                    if (result.isSuccess()) {
+                        listener.getLogger().println("♻️  Reusing scan results for commit " + commit);
+                    }
+                    finishLater(() -> getService().reuseResults(result, git, getContext().get(FilePath.class), options));
+                }
+            } catch (Throwable t) {
+                getContext().onFailure(t);
+            }
+        }, 0));
+    }
+
+    private void poll() {
+        if (stopped) {
+            return;
+        }
+        try {
+            if (System.currentTimeMillis() >= deadline) {
+                getService().cancelScan(scan.getJobId(), "timed out");
+                finishLater(() -> ScanResult.failure("Scan timed out after " + options.getTimeoutMinutes() + " minutes"));
+                return;
+            }
+
+            if (registration != null && registration.isSuperseded()) {
+                superseded(scan.getJobId());
+                return;
+            }
+
+            AgentScanService.StatusCheck check;
+            try {
+                check = getService().checkStatus(scan.getJobId(), 0);
+            } catch (AgentScanService.RetryLaterException e) {
+                // Comes back without holding a thread while the API is busy
+                task = ScanWaitScheduler.schedule(this::poll,
+                    Math.min(e.getDelayMillis(), deadline - System.currentTimeMillis()));
+                return;
+            } catch (IOException e) {
+                if (stopped || (registration != null && registration.isSuperseded())) {
+                    throw e;
+                }
+                // The API is struggling; keep waiting instead of failing the build
+                getContext().get(TaskListener.class).getLogger().println("⚠️  Status check failed ("
+                    + e.getMessage() + "), will try again");
+                check = new AgentScanService.StatusCheck(null, null, -1);
+            }
+            if (check.getStatus() != null && !Objects.equals(check.getStatus(), lastStatus)) {
+                getContext().get(TaskListener.class).getLogger().println("📊 Scan status: " + check.getStatus());
+                lastStatus = check.getStatus();
+            }
+
+            if (check.isTerminal()) {
+                AgentScanService.StatusCheck terminal = check;
+                finishLater(() -> getService().handleTerminalStatus(scan, terminal.getStatus(),
+                    terminal.getErrorMessage(), getContext().get(FilePath.class), options));
+            } else {
+                scheduleNextPoll(check.getServerHintMillis());
+            }
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    private void scheduleNextPoll(long serverHintMillis) {
+        if (backoff == null) {
+            backoff = PollingBackoff.fromConfiguration();
+        }
+        long delay = Math.min(backoff.nextDelay(serverHintMillis), deadline - System.currentTimeMillis());
+        task = ScanWaitScheduler.schedule(this::poll, delay);
+    }
+
+    /**
+     * Ends this build's scan after a scan of a newer commit of the branch superseded it,
+     * as the {@link SupersedePolicy} says, without blocking a thread.
+     *
+     * @param jobId the superseded scan's job, or {@code null} if it was not submitted
+     */
+    private void superseded(String jobId) throws Exception {
+        BranchScanRegistry.Registration newer = registration.getSupersededBy();
+        getService().cancelSuperseded(jobId, newer);
+        if (admission != null) {
+            // Waiting for the newer scan takes no slot
+            admission.release();
+        }
+        if (AgentScanGlobalConfiguration.get().getSupersedePolicy() != SupersedePolicy.ATTACH) {
+            finishLater(() -> AgentScanService.supersededResult(newer));
+            return;
+        }
+
+        getContext().get(TaskListener.class).getLogger().println("🔗 Waiting for the scan of newer commit "
+            + AgentScanService.shortSha(newer.getGit().getCommitSha()) + " instead");
+        newer.getResult().whenComplete((result, failure) -> finishLater(() -> getService().attachResults(newer,
+            failure == null ? result : null, getContext().get(FilePath.class), options)));
+    }
+
+    /**
+     * Runs {@code step} on the processing pool after {@code delayMillis}; only the timer is
+     * kept on the scan waiter.
+     */
+    private void processLater(Runnable step, long delayMillis) {
+        task = ScanWaitScheduler.schedule(() -> {
+            if (!stopped) {
+                task = ScanWaitScheduler.process(step);
+            }
+        }, delayMillis);
+    }
+
+    /**
+     * Computes the result and finishes with it on the processing pool, as both may download
+     * results, write to the workspace and archive files.
+     */
+    private void finishLater(ResultSource source) {
+        task = ScanWaitScheduler.process(() -> {
+            if (stopped) {
+                return;
+            }
+            try {
+                finish(source.get());
+            } catch (Throwable t) {
+                fail(t);
+            }
+        });
+    }
+
+    private void finish(ScanResult result) throws Exception {
+        Run<?, ?> run = getContext().get(Run.class);
+        FilePath workspace = getContext().get(FilePath.class);
+        TaskListener listener = getContext().get(TaskListener.class);
+
+        if (cacheKey != null) {
+            ScanResultCache.get().complete(cacheKey, result);
+            cacheKey = null;
+        }
+        if (registration != null) {
+            registration.complete(result);
+            registration = null;
+        }
+        if (admission != null) {
+            admission.release();
+        }
+        AgentScanBuilder.processResult(run, workspace, result, options, listener);
+        getContext().onSuccess(null);
+    }
+
+    private void fail(Throwable cause) {
+        if (cause instanceof IOException && scan != null && registration != null && registration.isSuperseded()) {
+            // The watchdog aborted a request of the superseded scan
+            try {
+                superseded(scan.getJobId());
+                return;
+            } catch (Throwable t) {
+                cause = t;
+            }
+        }
+        if (registration != null) {
+            registration.release();
+            registration = null;
+        }
+        if (admission != null) {
+            admission.release();
+        }
+        if (cacheKey != null) {
+            ScanResultCache.get().abandon(cacheKey);
+            cacheKey = null;
+        }
+        if (cause instanceof QualityGate.FailedException) {
+            // Only this build's gate stopped the download; waiting builds were released above
+            try {
+                finish(ScanResult.failure(cause.getMessage()));
+                return;
+            } catch (Throwable t) {
+                cause = t;
+            }
+        }
+        getContext().onFailure(cause);
+    }
+
+    private interface ResultSource {
+        ScanResult get() throws Exception;
+    }
+
+    private AgentScanService getService() throws Exception {
+        if (service == null) {
+            String apiToken = AgentScanBuilder.lookupApiToken(getContext().get(Run.class), credentialsId);
+            service = new AgentScanService(apiUrl, apiToken, getContext().get(TaskListener.class));
+            service.setDeadline(deadline);
+            service.setEnvironment(getContext().get(EnvVars.class));
+            // Requests must not hold the scan waiter's threads; see sendSubmit and poll
+            service.setNonBlocking(true);
+            if (options.isIncrementalScan()) {
+                service.setBaselines(ScanBaselineStore.forJob(getContext().get(Run.class).getParent()));
+            }
+            service.setPreviousFindings(FingerprintSet.forPreviousBuild(getContext().get(Run.class)));
+            service.setAdmissionGroup(ScanAdmissionScheduler.groupOf(getContext().get(Run.class).getParent()));
+        }
+        return service;
+    }
+}
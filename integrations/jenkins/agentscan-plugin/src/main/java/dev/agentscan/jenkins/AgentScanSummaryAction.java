@@ -0,0 +1,120 @@
+package dev.agentscan.jenkins;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link ScanSummary} of a build, with its histograms and the number of new and
+ * fixed findings since the previous build, in the build record.
+ *
+ * <p>Dashboards read the counts from {@code <build>/agentscan/api/json} without
+ * touching the archived results; e.g. {@code ?tree=cweCounts} returns the findings per
+ * CWE of that build.</p>
+ */
+@ExportedBean
+public class AgentScanSummaryAction implements RunAction2 {
+
+    private final ScanSummary summary;
+    private final int newFindings;
+    private final int fixedFindings;
+    private transient Run<?, ?> run;
+
+    public AgentScanSummaryAction(ScanSummary summary) {
+        this(summary, null);
+    }
+
+    AgentScanSummaryAction(ScanSummary summary, FindingDiff diff) {
+        this.summary = summary;
+        this.newFindings = diff != null ? diff.getNewCount() : summary.getTotalFindings();
+        this.fixedFindings = diff != null ? diff.getFixedCount() : 0;
+    }
+
+    public ScanSummary getSummary() {
+        return summary;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    @Exported
+    public int getTotalFindings() {
+        return summary.getTotalFindings();
+    }
+
+    /**
+     * Returns the number of findings the previous build did not have; all of them if there
+     * was nothing to compare with.
+     */
+    @Exported
+    public int getNewFindings() {
+        return newFindings;
+    }
+
+    /**
+     * Returns the number of the previous build's findings that this build no longer has.
+     */
+    @Exported
+    public int getFixedFindings() {
+        return fixedFindings;
+    }
+
+    @Exported
+    public Map<String, Integer> getSeverityCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Severity severity : Severity.values()) {
+            counts.put(severity.getLabel(), summary.getSeverityCount(severity));
+        }
+        return counts;
+    }
+
+    @Exported
+    public Map<String, Integer> getToolCounts() {
+        return summary.getToolCounts().toMap();
+    }
+
+    @Exported
+    public Map<String, Integer> getRuleCounts() {
+        return summary.getRuleCounts().toMap();
+    }
+
+    @Exported
+    public Map<String, Integer> getDirectoryCounts() {
+        return summary.getDirectoryCounts().toMap();
+    }
+
+    @Exported
+    public Map<String, Integer> getCweCounts() {
+        return summary.getCweCounts().toMap();
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "AgentScan Summary";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "agentscan";
+    }
+}
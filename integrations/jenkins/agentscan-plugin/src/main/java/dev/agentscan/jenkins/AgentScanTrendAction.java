@@ -0,0 +1,106 @@
+package dev.agentscan.jenkins;
+
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.Job;
+import jenkins.model.TransientActionFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Job page showing the findings per severity over the latest builds, read from the
+ * job's {@link ScanTrendIndex}.
+ */
+public class AgentScanTrendAction implements Action {
+
+    static final int MAX_BUILDS = 500;
+
+    private static final int CHART_WIDTH = 800;
+    private static final int CHART_HEIGHT = 240;
+    private static final String[] SEVERITY_COLORS = {"#a40e26", "#d1242f", "#fb8500", "#1f883d", "#0969da"};
+
+    private final Job<?, ?> job;
+
+    AgentScanTrendAction(Job<?, ?> job) {
+        this.job = job;
+    }
+
+    public Job<?, ?> getJob() {
+        return job;
+    }
+
+    /**
+     * Returns the points of the latest builds, oldest first.
+     */
+    public List<ScanTrendPoint> getPoints() throws IOException {
+        return ScanTrendIndex.forJob(job).read(MAX_BUILDS);
+    }
+
+    /**
+     * Renders the points as an SVG line chart with one line per severity.
+     */
+    public String getChartSvg(List<ScanTrendPoint> points) {
+        int max = 1;
+        for (ScanTrendPoint point : points) {
+            for (Severity severity : Severity.values()) {
+                max = Math.max(max, point.getSeverityCount(severity));
+            }
+        }
+        StringBuilder svg = new StringBuilder(4096 + points.size() * 64);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(CHART_WIDTH)
+            .append("\" height=\"").append(CHART_HEIGHT).append("\" viewBox=\"0 0 ").append(CHART_WIDTH)
+            .append(' ').append(CHART_HEIGHT).append("\">");
+        svg.append("<text x=\"4\" y=\"12\" font-size=\"11\">").append(max).append("</text>");
+        for (Severity severity : Severity.values()) {
+            svg.append("<polyline fill=\"none\" stroke-width=\"1.5\" stroke=\"")
+                .append(SEVERITY_COLORS[severity.ordinal()]).append("\" points=\"");
+            for (int i = 0; i < points.size(); i++) {
+                int x = points.size() == 1 ? CHART_WIDTH / 2 : i * (CHART_WIDTH - 1) / (points.size() - 1);
+                int y = CHART_HEIGHT - 1 - points.get(i).getSeverityCount(severity) * (CHART_HEIGHT - 20) / max;
+                svg.append(x).append(',').append(y).append(' ');
+            }
+            svg.append("\"><title>").append(severity.getLabel()).append("</title></polyline>");
+        }
+        return svg.append("</svg>").toString();
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "AgentScan Trend";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "agentscan-trend";
+    }
+
+    /**
+     * Adds the trend page to jobs that have a trend index.
+     */
+    @Extension
+    public static final class Factory extends TransientActionFactory<Job> {
+
+        @Override
+        public Class<Job> type() {
+            return Job.class;
+        }
+
+        @Nonnull
+        @Override
+        public Collection<? extends Action> createFor(@Nonnull Job target) {
+            if (!ScanTrendIndex.forJob(target).exists()) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(new AgentScanTrendAction(target));
+        }
+    }
+}
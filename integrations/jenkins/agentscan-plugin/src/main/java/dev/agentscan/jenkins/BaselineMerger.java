@@ -0,0 +1,107 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Completes the results of an incremental scan with the baseline of the commit it was
+ * diffed against, as pinned when the scan was submitted.
+ *
+ * <p>Findings from the response pass straight through. Before the findings array closes,
+ * the baseline is replayed, skipping findings in changed paths since those files were
+ * rescanned (or deleted). The server's summary only covers the changed files, so it is
+ * dropped and downstream handlers count the merged findings themselves.</p>
+ */
+final class BaselineMerger implements FindingHandler {
+
+    private final ObjectMapper objectMapper;
+    private final ScanBaselineStore baselines;
+    private final String baselinePin;
+    private final String baseCommit;
+    private final Set<String> changedFiles;
+    private final List<? extends FindingHandler> handlers;
+    private boolean replayed;
+
+    BaselineMerger(ObjectMapper objectMapper, ScanBaselineStore baselines, String baselinePin, String baseCommit,
+                   List<String> changedFiles, List<? extends FindingHandler> handlers) {
+        this.objectMapper = objectMapper;
+        this.baselines = baselines;
+        this.baselinePin = baselinePin;
+        this.baseCommit = baseCommit;
+        this.changedFiles = new HashSet<>(changedFiles);
+        this.handlers = handlers;
+    }
+
+    @Override
+    public void onMetadata(String name, Object value) throws IOException {
+        for (FindingHandler handler : handlers) {
+            handler.onMetadata(name, value);
+        }
+    }
+
+    @Override
+    public void onFindingsStart() throws IOException {
+        for (FindingHandler handler : handlers) {
+            handler.onFindingsStart();
+        }
+    }
+
+    @Override
+    public void onFinding(Finding finding) throws IOException {
+        for (FindingHandler handler : handlers) {
+            handler.onFinding(finding);
+        }
+    }
+
+    @Override
+    public void onFindingsEnd() throws IOException {
+        replayBaseline();
+        for (FindingHandler handler : handlers) {
+            handler.onFindingsEnd();
+        }
+    }
+
+    @Override
+    public void onEnd() throws IOException {
+        if (!replayed) {
+            // The response had no findings array at all
+            onFindingsStart();
+            onFindingsEnd();
+        }
+        for (FindingHandler handler : handlers) {
+            handler.onEnd();
+        }
+    }
+
+    private void replayBaseline() throws IOException {
+        replayed = true;
+        FindingHandler unchanged = finding -> {
+            if (!changedFiles.contains(normalize(finding.getFilePath()))) {
+                onFinding(finding);
+            }
+        };
+        try (InputStream in = baselines.openPinned(baselinePin, baseCommit)) {
+            ScanResultsParser.parse(objectMapper, in, Collections.singletonList(unchanged));
+        }
+    }
+
+    /**
+     * Maps a finding path onto the repository-relative form reported by {@code git diff}.
+     */
+    private static String normalize(String filePath) {
+        if (filePath == null) {
+            return "";
+        }
+        String path = filePath.replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,197 @@
+package dev.agentscan.jenkins;
+
+import hudson.FilePath;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Controller-wide registry of the scans running per API, repository and branch.
+ *
+ * <p>A registering scan is ordered against the running scans of the branch by commit
+ * ancestry in its workspace, not by arrival. The running scans of ancestor commits are
+ * marked superseded, and so is the registering scan if its commit is an ancestor of a
+ * running one, such as a late build of an older commit. Their builds cancel them and,
+ * depending on the {@link SupersedePolicy}, end or wait for the newer scan's result.
+ * Scans of unrelated commits, for example after a force push, are all kept.</p>
+ *
+ * <p>Only scans whose branch was read from the checkout take part; a branch that fell back
+ * to the environment or a default could put unrelated builds under one key.</p>
+ */
+final class BranchScanRegistry {
+
+    private static final BranchScanRegistry INSTANCE = new BranchScanRegistry();
+
+    private final Map<String, List<Registration>> branches = new HashMap<>();
+
+    static BranchScanRegistry get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a scan that is about to be submitted. The caller must finish the
+     * registration with {@link Registration#complete} or {@link Registration#release}.
+     *
+     * @param workspace the checkout of the scanned commit, in which commits are ordered
+     * @return the registration, already superseded if its commit is an ancestor of a running
+     *     scan's; {@code null} if every scan is kept or the branch is not known
+     */
+    Registration register(String apiUrl, GitMetadata git, FilePath workspace)
+            throws IOException, InterruptedException {
+        if (AgentScanGlobalConfiguration.get().getSupersedePolicy() == SupersedePolicy.KEEP
+                || git.getBranch() == null || !git.isBranchCheckedOut()
+                || git.getCommitSha() == null || "unknown-commit".equals(git.getCommitSha())
+                || git.getRepositoryUrl() == null || "unknown-repository".equals(git.getRepositoryUrl())) {
+            return null;
+        }
+        String key = AgentScanHttpClients.apiKey(apiUrl) + '\n' + git.getRepositoryUrl() + '\n' + git.getBranch();
+        Registration registration = new Registration(this, key, git);
+        List<Registration> earlier;
+        synchronized (this) {
+            // Scans registering later compare themselves with this one
+            List<Registration> running = branches.computeIfAbsent(key, k -> new ArrayList<>(2));
+            earlier = new ArrayList<>(running);
+            running.add(registration);
+        }
+        List<String> commits = new ArrayList<>();
+        for (Registration other : earlier) {
+            if (!other.git.getCommitSha().equals(git.getCommitSha()) && !commits.contains(other.git.getCommitSha())) {
+                commits.add(other.git.getCommitSha());
+            }
+        }
+        if (commits.isEmpty()) {
+            return registration;
+        }
+
+        Map<String, CommitAncestryCallable.Order> orders;
+        try {
+            orders = workspace.act(new CommitAncestryCallable(commits, git.getCommitSha()));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            release(registration);
+            throw e;
+        }
+        List<Registration> superseded = new ArrayList<>();
+        Registration newer = null;
+        synchronized (this) {
+            List<Registration> running = branches.get(key);
+            for (Registration other : earlier) {
+                CommitAncestryCallable.Order order = orders.get(other.git.getCommitSha());
+                if (order == null || running == null || !running.contains(other)) {
+                    continue;
+                }
+                if (order == CommitAncestryCallable.Order.OLDER) {
+                    running.remove(other);
+                    superseded.add(other);
+                } else if (order == CommitAncestryCallable.Order.NEWER && newer == null) {
+                    newer = other;
+                }
+            }
+            if (newer != null && running != null) {
+                // A late build of an older commit; the running scan covers it
+                running.remove(registration);
+                if (running.isEmpty()) {
+                    branches.remove(key);
+                }
+            }
+        }
+        // Outside the lock; waiting builds react on their own threads
+        for (Registration older : superseded) {
+            older.supersededBy.complete(registration);
+        }
+        if (newer != null) {
+            registration.supersededBy.complete(newer);
+        }
+        return registration;
+    }
+
+    private synchronized void release(Registration registration) {
+        List<Registration> running = branches.get(registration.key);
+        if (running != null && running.remove(registration) && running.isEmpty()) {
+            branches.remove(registration.key);
+        }
+    }
+
+    /**
+     * A registered scan, which publishes its result to the builds it superseded.
+     */
+    static final class Registration {
+
+        private final BranchScanRegistry registry;
+        private final String key;
+        private final GitMetadata git;
+        private final CompletableFuture<Registration> supersededBy = new CompletableFuture<>();
+        private final CompletableFuture<ScanResult> result = new CompletableFuture<>();
+
+        private Registration(BranchScanRegistry registry, String key, GitMetadata git) {
+            this.registry = registry;
+            this.key = key;
+            this.git = git;
+        }
+
+        GitMetadata getGit() {
+            return git;
+        }
+
+        boolean isSuperseded() {
+            return supersededBy.isDone();
+        }
+
+        /**
+         * Returns the newer scan that superseded this one, or {@code null} if it is still current.
+         */
+        Registration getSupersededBy() {
+            return supersededBy.getNow(null);
+        }
+
+        /**
+         * Returns a future that is done once this scan is superseded.
+         */
+        CompletableFuture<?> superseded() {
+            return supersededBy;
+        }
+
+        /**
+         * Waits up to {@code millis} for this scan to be superseded.
+         *
+         * @return whether it was superseded
+         */
+        boolean awaitSuperseded(long millis) throws InterruptedException {
+            try {
+                supersededBy.get(millis, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException | ExecutionException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Returns the future result of this scan. It is cancelled if the scan ends without one.
+         */
+        CompletableFuture<ScanResult> getResult() {
+            return result;
+        }
+
+        /**
+         * Publishes the result of this scan to the builds it superseded.
+         */
+        void complete(ScanResult scanResult) {
+            registry.release(this);
+            result.complete(scanResult);
+        }
+
+        /**
+         * Removes a scan that ended without a result.
+         */
+        void release() {
+            registry.release(this);
+            result.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package dev.agentscan.jenkins;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists the files that differ between two commits by running {@code git diff} on the
+ * agent that holds the workspace.
+ *
+ * <p>Renames are reported as a deletion plus an addition so findings recorded against
+ * the old path are dropped. Returns {@code null} if the diff cannot be computed, for
+ * example because the base commit is missing from a shallow clone.</p>
+ */
+class ChangedFilesCallable extends MasterToSlaveFileCallable<ArrayList<String>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final String baseCommit;
+    private final String headCommit;
+
+    ChangedFilesCallable(String baseCommit, String headCommit) {
+        this.baseCommit = baseCommit;
+        this.headCommit = headCommit;
+    }
+
+    @Override
+    public ArrayList<String> invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+        // The output goes to a file, so the timeout holds even if git never closes its output
+        File outputFile = File.createTempFile("agentscan-diff", ".txt");
+        try {
+            ProcessBuilder builder = new ProcessBuilder("git", "diff", "--name-only", "--no-renames", "-z",
+                baseCommit, headCommit, "--")
+                .directory(workspace)
+                .redirectOutput(outputFile)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+
+            Process process;
+            try {
+                process = builder.start();
+            } catch (IOException e) {
+                // No git executable on this agent
+                return null;
+            }
+
+            try {
+                if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            if (process.exitValue() != 0) {
+                return null;
+            }
+            return parse(Files.readAllBytes(outputFile.toPath()));
+        } finally {
+            Files.deleteIfExists(outputFile.toPath());
+        }
+    }
+
+    private static ArrayList<String> parse(byte[] output) {
+        ArrayList<String> paths = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < output.length; i++) {
+            if (output[i] == 0) {
+                if (i > start) {
+                    paths.add(new String(output, start, i - start, StandardCharsets.UTF_8));
+                }
+                start = i + 1;
+            }
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,88 @@
+package dev.agentscan.jenkins;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders commits relative to the workspace's commit by running
+ * {@code git merge-base --is-ancestor} on the agent that holds the workspace.
+ *
+ * <p>Commits that are missing from the workspace, for example in a shallow clone, or that
+ * are on diverged histories are reported as {@link Order#UNRELATED}.</p>
+ */
+class CommitAncestryCallable extends MasterToSlaveFileCallable<HashMap<String, CommitAncestryCallable.Order>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    /**
+     * Where a commit is relative to the workspace's commit.
+     */
+    enum Order {
+        /** An ancestor of the workspace's commit. */
+        OLDER,
+        /** A descendant of the workspace's commit. */
+        NEWER,
+        /** Neither, or not known. */
+        UNRELATED
+    }
+
+    private final ArrayList<String> commits;
+    private final String headCommit;
+
+    CommitAncestryCallable(List<String> commits, String headCommit) {
+        this.commits = new ArrayList<>(commits);
+        this.headCommit = headCommit;
+    }
+
+    @Override
+    public HashMap<String, Order> invoke(File workspace, VirtualChannel channel)
+            throws IOException, InterruptedException {
+        HashMap<String, Order> orders = new HashMap<>();
+        for (String commit : commits) {
+            Order order = Order.UNRELATED;
+            if (isAncestor(workspace, commit, headCommit)) {
+                order = Order.OLDER;
+            } else if (isAncestor(workspace, headCommit, commit)) {
+                order = Order.NEWER;
+            }
+            orders.put(commit, order);
+        }
+        return orders;
+    }
+
+    private static boolean isAncestor(File workspace, String ancestor, String descendant)
+            throws InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder("git", "merge-base", "--is-ancestor", ancestor, descendant)
+            .directory(workspace)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            // No git executable on this agent
+            return false;
+        }
+        try {
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        // 1 means not an ancestor; anything else, such as an unknown commit, is an error
+        return process.exitValue() == 0;
+    }
+}
@@ -0,0 +1,115 @@
+package dev.agentscan.jenkins;
+
+import hudson.FilePath;
+import hudson.remoting.Pipe;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens workspace files for streaming writes from the controller.
+ *
+ * <p>For a workspace on an agent, the data is gzip-compressed on the controller, sent
+ * through a {@link Pipe} and decompressed into the file on the agent, so result files
+ * cross the remoting channel at a fraction of their size. Only the compression buffers
+ * are held on the controller, whatever the size of the file.</p>
+ */
+final class CompressedFileWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CompressedFileWriter() {
+    }
+
+    /**
+     * Opens {@code target} for writing. Closing the stream waits until the agent has
+     * written the whole file and reports any error it hit.
+     */
+    static OutputStream write(FilePath target) throws IOException, InterruptedException {
+        if (!target.isRemote()) {
+            return new BufferedOutputStream(target.write(), BUFFER_SIZE);
+        }
+        Pipe pipe = Pipe.createLocalToRemote();
+        Future<Void> receiver = target.actAsync(new Receiver(pipe));
+        return new SenderStream(new FastGZIPOutputStream(pipe.getOut()), receiver);
+    }
+
+    /**
+     * Trades compression ratio for controller CPU; scan results still shrink several times.
+     */
+    private static final class FastGZIPOutputStream extends GZIPOutputStream {
+        FastGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    private static final class SenderStream extends FilterOutputStream {
+
+        private final Future<Void> receiver;
+
+        SenderStream(OutputStream out, Future<Void> receiver) {
+            super(out);
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream would otherwise write one byte at a time
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            try {
+                receiver.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing to the agent");
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to write file on the agent", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Runs on the agent and inflates the piped data into the target file.
+     */
+    private static final class Receiver extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Pipe pipe;
+
+        Receiver(Pipe pipe) {
+            this.pipe = pipe;
+        }
+
+        @Override
+        public Void invoke(File file, VirtualChannel channel) throws IOException {
+            File parent = file.getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            try (InputStream in = new GZIPInputStream(pipe.getIn(), BUFFER_SIZE);
+                 OutputStream out = Files.newOutputStream(file.toPath())) {
+                in.transferTo(out);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dev.agentscan.jenkins;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A single security finding reported by a scan.
+ */
+public final class Finding {
+
+    private final String id;
+    private final String tool;
+    private final String ruleId;
+    private final Severity severity;
+    private final String category;
+    private final String cwe;
+    private final String title;
+    private final String description;
+    private final String filePath;
+    private final int lineNumber;
+    private final int columnNumber;
+    private final String codeSnippet;
+    private final double confidence;
+    private final Map<String, Object> extraFields;
+
+    Finding(String id, String tool, String ruleId, Severity severity, String category, String cwe, String title,
+            String description, String filePath, int lineNumber, int columnNumber, String codeSnippet,
+            double confidence) {
+        this(id, tool, ruleId, severity, category, cwe, title, description, filePath, lineNumber, columnNumber,
+            codeSnippet, confidence, null);
+    }
+
+    Finding(String id, String tool, String ruleId, Severity severity, String category, String cwe, String title,
+            String description, String filePath, int lineNumber, int columnNumber, String codeSnippet,
+            double confidence, Map<String, Object> extraFields) {
+        this.id = id;
+        this.tool = tool;
+        this.ruleId = ruleId;
+        this.severity = severity;
+        this.category = category;
+        this.cwe = cwe;
+        this.title = title;
+        this.description = description;
+        this.filePath = filePath;
+        this.lineNumber = lineNumber;
+        this.columnNumber = columnNumber;
+        this.codeSnippet = codeSnippet;
+        this.confidence = confidence;
+        this.extraFields = extraFields;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTool() {
+        return tool;
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Returns the CWE weakness the finding maps to, as {@code CWE-<id>}, or {@code null} if none.
+     */
+    public String getCwe() {
+        return cwe;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns the 1-based line number, or {@code 0} if unknown.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the 1-based column number, or {@code 0} if unknown.
+     */
+    public int getColumnNumber() {
+        return columnNumber;
+    }
+
+    public String getCodeSnippet() {
+        return codeSnippet;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Returns the fields of the API's finding that this model has no property for, such as
+     * {@code references}, in their original order, so that they are written back unchanged.
+     */
+    public Map<String, Object> getExtraFields() {
+        return extraFields != null ? Collections.unmodifiableMap(extraFields) : Collections.emptyMap();
+    }
+}
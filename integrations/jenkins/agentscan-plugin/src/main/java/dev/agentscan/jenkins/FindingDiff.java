@@ -0,0 +1,99 @@
+package dev.agentscan.jenkins;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Classifies findings as new or unchanged against the previous build's
+ * {@link FingerprintSet} while they are read, and counts the previous findings that are
+ * gone (fixed).
+ *
+ * <p>Each finding is looked up in the previous build's sorted fingerprints with a binary
+ * search, and a bit set marks the entries already matched. Fingerprints are counted as a
+ * multiset: if the previous build had a finding twice and this one has it three times,
+ * one of the three is new. Without a previous build every finding is new.</p>
+ */
+final class FindingDiff implements FindingHandler {
+
+    private final FingerprintSet previous;
+    private final BitSet matched;
+    private long[] fingerprints = new long[1024];
+    private int count;
+    private int newCount;
+    private Finding last;
+    private boolean lastNew;
+
+    /**
+     * @param previous the previous build's fingerprints, or {@code null} if there is none
+     */
+    FindingDiff(FingerprintSet previous) {
+        this.previous = previous;
+        this.matched = previous != null ? new BitSet(previous.size()) : null;
+    }
+
+    @Override
+    public void onFinding(Finding finding) {
+        if (finding != last) {
+            classify(finding);
+        }
+    }
+
+    /**
+     * Returns whether the finding was not in the previous build. Handlers that run before
+     * this one in the same pass may ask too; each finding is classified once.
+     */
+    boolean isNew(Finding finding) {
+        onFinding(finding);
+        return lastNew;
+    }
+
+    private void classify(Finding finding) {
+        long fingerprint = FindingFingerprint.of(finding);
+        if (count == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, count * 2);
+        }
+        fingerprints[count++] = fingerprint;
+        lastNew = !matchPrevious(fingerprint);
+        if (lastNew) {
+            newCount++;
+        }
+        last = finding;
+    }
+
+    private boolean matchPrevious(long fingerprint) {
+        if (previous == null) {
+            return false;
+        }
+        int size = previous.size();
+        for (int i = previous.lowerBound(fingerprint); i < size && previous.get(i) == fingerprint; i++) {
+            if (!matched.get(i)) {
+                matched.set(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean hasPrevious() {
+        return previous != null;
+    }
+
+    int getNewCount() {
+        return newCount;
+    }
+
+    int getUnchangedCount() {
+        return count - newCount;
+    }
+
+    int getFixedCount() {
+        return previous != null ? previous.size() - getUnchangedCount() : 0;
+    }
+
+    /**
+     * Returns the fingerprints of this build's findings, to be stored for the next build.
+     */
+    FingerprintSet getFingerprints() {
+        return FingerprintSet.of(fingerprints, count);
+    }
+}
@@ -0,0 +1,108 @@
+package dev.agentscan.jenkins;
+
+/**
+ * Stable 64-bit identity of a finding across builds.
+ *
+ * <p>The fingerprint covers the tool, rule, normalized file path and the
+ * whitespace-normalized code snippet (or the title when there is no snippet), but not the
+ * line number, so a finding keeps its identity when unrelated edits move it up or down
+ * the file, and when tools report {@code ./src\A.java} instead of {@code src/A.java}. The hash
+ * is 64-bit FNV-1a with a final avalanche step; it is fast, not cryptographic.</p>
+ */
+final class FindingFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private FindingFingerprint() {
+    }
+
+    static long of(Finding finding) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, finding.getTool());
+        hash = mix(hash, finding.getRuleId());
+        hash = mixPath(hash, finding.getFilePath());
+        String snippet = finding.getCodeSnippet();
+        if (snippet != null && !snippet.isBlank()) {
+            hash = mixNormalized(hash, snippet);
+        } else {
+            hash = mix(hash, finding.getTitle());
+        }
+        return finish(hash);
+    }
+
+    static String toHex(long fingerprint) {
+        String hex = Long.toHexString(fingerprint);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") differ
+        return (hash ^ 0xffff) * FNV_PRIME;
+    }
+
+    /**
+     * Mixes a path with forward slashes and without leading {@code ./} or {@code /}.
+     */
+    private static long mixPath(long hash, String path) {
+        if (path != null) {
+            int start = 0;
+            int length = path.length();
+            while (start < length) {
+                char c = path.charAt(start);
+                if (c == '/' || c == '\\') {
+                    start++;
+                } else if (c == '.' && start + 1 < length && (path.charAt(start + 1) == '/'
+                        || path.charAt(start + 1) == '\\')) {
+                    start += 2;
+                } else {
+                    break;
+                }
+            }
+            for (int i = start; i < length; i++) {
+                char c = path.charAt(i);
+                hash = (hash ^ (c == '\\' ? '/' : c)) * FNV_PRIME;
+            }
+        }
+        return (hash ^ 0xffff) * FNV_PRIME;
+    }
+
+    /**
+     * Mixes a value with runs of whitespace collapsed and leading/trailing whitespace ignored.
+     */
+    private static long mixNormalized(long hash, String value) {
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                hash = (hash ^ ' ') * FNV_PRIME;
+                pendingSpace = false;
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+            started = true;
+        }
+        return (hash ^ 0xffff) * FNV_PRIME;
+    }
+
+    /**
+     * Spreads the low-entropy FNV state over all 64 bits.
+     */
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
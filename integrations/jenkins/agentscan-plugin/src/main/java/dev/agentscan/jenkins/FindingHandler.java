@@ -0,0 +1,40 @@
+package dev.agentscan.jenkins;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Receives scan results one piece at a time while they are parsed from the API response.
+ *
+ * <p>Events arrive in document order. {@link #onFinding} is called once per finding
+ * between {@link #onFindingsStart} and {@link #onFindingsEnd}, so no handler needs the
+ * whole result document in memory.</p>
+ */
+interface FindingHandler {
+
+    /**
+     * Called for each top-level field other than {@code summary} and {@code findings}.
+     */
+    default void onMetadata(String name, Object value) throws IOException {
+    }
+
+    /**
+     * Called with the server-computed {@code summary} object, if the response has one.
+     */
+    default void onSummary(Map<String, Object> summary) throws IOException {
+    }
+
+    default void onFindingsStart() throws IOException {
+    }
+
+    void onFinding(Finding finding) throws IOException;
+
+    default void onFindingsEnd() throws IOException {
+    }
+
+    /**
+     * Called once after the whole document has been read.
+     */
+    default void onEnd() throws IOException {
+    }
+}
@@ -0,0 +1,111 @@
+package dev.agentscan.jenkins;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts findings per distinct value of one attribute, such as the tool or the file.
+ *
+ * <p>Each value is given a dense id in order of first appearance and counted in an
+ * {@code int} array, so counting a finding is one hash lookup and an array increment,
+ * with no boxed counters. Saved with the build, a histogram is just its dictionary of
+ * values and the parallel array of counts.</p>
+ */
+public final class FindingHistogram {
+
+    private String[] values;
+    private int[] counts;
+    private int size;
+    private transient Map<String, Integer> ids;
+
+    public FindingHistogram() {
+        this.values = new String[8];
+        this.counts = new int[8];
+        this.ids = new HashMap<>();
+    }
+
+    /**
+     * Counts one occurrence of {@code value} and returns its id; {@code null} is not counted.
+     */
+    int add(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = size++;
+            ids.put(value, id);
+            if (id == values.length) {
+                values = Arrays.copyOf(values, Math.max(8, id * 2));
+                counts = Arrays.copyOf(counts, Math.max(8, id * 2));
+            }
+            values[id] = value;
+        }
+        counts[id]++;
+        return id;
+    }
+
+    /**
+     * Returns the number of distinct values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the id of {@code value}, or {@code -1} if it was never counted.
+     */
+    public int indexOf(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    public String getValue(int id) {
+        return values[id];
+    }
+
+    public int getCount(int id) {
+        return counts[id];
+    }
+
+    public int getCount(String value) {
+        int id = indexOf(value);
+        return id >= 0 ? counts[id] : 0;
+    }
+
+    /**
+     * Returns the counts keyed by value, in order of first appearance.
+     */
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(values[i], counts[i]);
+        }
+        return map;
+    }
+
+    /**
+     * Drops the spare capacity before the histogram is saved.
+     */
+    private Object writeReplace() {
+        if (values.length == size) {
+            return this;
+        }
+        FindingHistogram trimmed = new FindingHistogram();
+        trimmed.values = Arrays.copyOf(values, size);
+        trimmed.counts = Arrays.copyOf(counts, size);
+        trimmed.size = size;
+        trimmed.ids = ids;
+        return trimmed;
+    }
+
+    private Object readResolve() {
+        ids = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            ids.put(values[i], i);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,423 @@
+package dev.agentscan.jenkins;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The findings of one build in a compact binary file under the build directory, read a
+ * block at a time.
+ *
+ * <p>Layout, version 2:</p>
+ * <pre>
+ * header      magic "ASFD", version, finding count, findings per block, block count,
+ *             dictionary offset, compressed and raw length, block index offset
+ * blocks      deflate-compressed findings, {@value #BLOCK_SIZE} per block
+ * dictionary  deflate-compressed strings shared by findings: tools, rules, categories, CWEs
+ * index       per block: offset, compressed and raw length
+ * </pre>
+ * <p>In a block, each finding is a sequence of varints: dictionary references for the
+ * low-cardinality fields, then severity, line and column. The ID, title, description, path
+ * and snippet are inline, where deflate still shares their repeats within the block, and the
+ * confidence takes 8 bytes. This keeps the dictionary small, since opening a store reads it
+ * along with the header and the index; findings are decoded only for the blocks a caller
+ * asks for. Blocks are read with positional reads rather than a memory mapping, since a
+ * mapped file cannot be deleted on Windows until the mapping is garbage collected, which
+ * would block deleting the build.</p>
+ */
+final class FindingStore {
+
+    static final String FILE_NAME = "agentscan-findings.bin";
+
+    private static final int MAGIC = 0x41534644;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 44;
+    static final int BLOCK_SIZE = 1024;
+    private static final Severity[] SEVERITIES = Severity.values();
+
+    private final File file;
+    private final int size;
+    private final int blockSize;
+    private final String[] dictionary;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockRawLengths;
+
+    private FindingStore(File file, int size, int blockSize, String[] dictionary, long[] blockOffsets,
+                         int[] blockLengths, int[] blockRawLengths) {
+        this.file = file;
+        this.size = size;
+        this.blockSize = blockSize;
+        this.dictionary = dictionary;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.blockRawLengths = blockRawLengths;
+    }
+
+    /**
+     * Writes {@code findings} to {@code file}, replacing it atomically.
+     */
+    static void write(File file, List<Finding> findings) throws IOException {
+        Path directory = file.getParentFile().toPath();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "findings", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                new Writer(channel).write(findings);
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // No-op once the file has been moved into place
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Opens a store, reading its header, block index and dictionary but no findings.
+     */
+    static FindingStore open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an AgentScan findings file: " + file);
+            }
+            int size = header.getInt();
+            int blockSize = header.getInt();
+            int blockCount = header.getInt();
+            long dictionaryOffset = header.getLong();
+            int dictionaryLength = header.getInt();
+            int dictionaryRawLength = header.getInt();
+            long indexOffset = header.getLong();
+            if (size < 0 || blockSize <= 0 || blockCount != (size + (long) blockSize - 1) / blockSize) {
+                throw new IOException("Corrupt AgentScan findings file: " + file);
+            }
+
+            ByteBuffer index = read(channel, indexOffset, blockCount * 16);
+            long[] blockOffsets = new long[blockCount];
+            int[] blockLengths = new int[blockCount];
+            int[] blockRawLengths = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blockOffsets[i] = index.getLong();
+                blockLengths[i] = index.getInt();
+                blockRawLengths[i] = index.getInt();
+            }
+
+            Input input = new Input(inflate(read(channel, dictionaryOffset, dictionaryLength), dictionaryRawLength));
+            String[] dictionary = new String[input.readVarint() + 1];
+            for (int i = 1; i < dictionary.length; i++) {
+                dictionary[i] = input.readString();
+            }
+            return new FindingStore(file, size, blockSize, dictionary, blockOffsets, blockLengths, blockRawLengths);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Reads the findings from index {@code from} (inclusive) to {@code to} (exclusive),
+     * decoding only the blocks they are in.
+     */
+    List<Finding> read(int from, int to) throws IOException {
+        from = Math.max(0, from);
+        to = Math.min(size, to);
+        List<Finding> findings = new ArrayList<>(Math.max(0, to - from));
+        if (from >= to) {
+            return findings;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (int block = from / blockSize; block <= (to - 1) / blockSize; block++) {
+                Input input = new Input(inflate(read(channel, blockOffsets[block], blockLengths[block]),
+                    blockRawLengths[block]));
+                int first = block * blockSize;
+                int last = Math.min(size, first + blockSize);
+                for (int i = first; i < last && i < to; i++) {
+                    Finding finding = readFinding(input);
+                    if (i >= from) {
+                        findings.add(finding);
+                    }
+                }
+            }
+        }
+        return findings;
+    }
+
+    private Finding readFinding(Input input) throws IOException {
+        String id = input.readString();
+        String tool = dictionary[input.readVarint()];
+        String ruleId = dictionary[input.readVarint()];
+        Severity severity = SEVERITIES[input.readVarint()];
+        String category = dictionary[input.readVarint()];
+        String cwe = dictionary[input.readVarint()];
+        String title = input.readString();
+        String description = input.readString();
+        String filePath = input.readString();
+        int lineNumber = input.readVarint();
+        int columnNumber = input.readVarint();
+        String codeSnippet = input.readString();
+        double confidence = Double.longBitsToDouble(input.readLong());
+        return new Finding(id, tool, ruleId, severity, category, cwe, title, description, filePath, lineNumber,
+            columnNumber, codeSnippet, confidence);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated AgentScan findings file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] inflate(ByteBuffer compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), 0, compressed.limit());
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Corrupt AgentScan findings block");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt AgentScan findings block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Encodes findings block by block, collecting the dictionary as it goes.
+     */
+    private static final class Writer {
+
+        private final FileChannel channel;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final Output dictionary = new Output();
+        private final Output block = new Output();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private byte[] compressed = new byte[64 * 1024];
+        private long position = HEADER_BYTES;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(List<Finding> findings) throws IOException {
+            try {
+                int blockCount = (findings.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+                ByteBuffer index = ByteBuffer.allocate(blockCount * 16);
+                for (int first = 0; first < findings.size(); first += BLOCK_SIZE) {
+                    block.reset();
+                    for (Finding finding : findings.subList(first, Math.min(findings.size(), first + BLOCK_SIZE))) {
+                        writeFinding(finding);
+                    }
+                    index.putLong(position).putInt(writeCompressed(block)).putInt(block.length);
+                }
+
+                long dictionaryOffset = position;
+                Output strings = new Output();
+                strings.writeVarint(ids.size());
+                strings.append(dictionary);
+                int dictionaryLength = writeCompressed(strings);
+
+                long indexOffset = position;
+                index.flip();
+                writeFully(index);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(findings.size()).putInt(BLOCK_SIZE).putInt(blockCount)
+                    .putLong(dictionaryOffset).putInt(dictionaryLength).putInt(strings.length).putLong(indexOffset);
+                header.flip();
+                position = 0;
+                writeFully(header);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void writeFinding(Finding finding) {
+            block.writeString(finding.getId());
+            block.writeVarint(reference(finding.getTool()));
+            block.writeVarint(reference(finding.getRuleId()));
+            block.writeVarint(finding.getSeverity().ordinal());
+            block.writeVarint(reference(finding.getCategory()));
+            block.writeVarint(reference(finding.getCwe()));
+            block.writeString(finding.getTitle());
+            block.writeString(finding.getDescription());
+            block.writeString(finding.getFilePath());
+            block.writeVarint(finding.getLineNumber());
+            block.writeVarint(finding.getColumnNumber());
+            block.writeString(finding.getCodeSnippet());
+            block.writeLong(Double.doubleToLongBits(finding.getConfidence()));
+        }
+
+        /**
+         * Returns the dictionary ID of {@code value}, adding it if new; {@code 0} stands for {@code null}.
+         */
+        private int reference(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = ids.size() + 1;
+                ids.put(value, id);
+                dictionary.writeString(value);
+            }
+            return id;
+        }
+
+        private int writeCompressed(Output raw) throws IOException {
+            deflater.reset();
+            deflater.setInput(raw.bytes, 0, raw.length);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            writeFully(ByteBuffer.wrap(compressed, 0, length));
+            return length;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * Growable byte array with varint and string encoding.
+     */
+    private static final class Output {
+
+        byte[] bytes = new byte[64 * 1024];
+        int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * Writes the UTF-8 length plus one, then the bytes; a length of {@code 0} stands for {@code null}.
+         */
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        void append(Output other) {
+            ensure(other.length);
+            System.arraycopy(other.bytes, 0, bytes, length, other.length);
+            length += other.length;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = next();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt varint in AgentScan findings file");
+        }
+
+        long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (next() & 0xff);
+            }
+            return value;
+        }
+
+        String readString() throws IOException {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > bytes.length - position) {
+                throw new EOFException("Truncated string in AgentScan findings file");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private byte next() throws IOException {
+            if (position == bytes.length) {
+                throw new EOFException("Truncated AgentScan findings block");
+            }
+            return bytes[position++];
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package dev.agentscan.jenkins;
+
+import hudson.model.Run;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link FindingFingerprint}s of one build's findings, sorted, with duplicates kept.
+ *
+ * <p>Each build stores its set in {@value #FILE_NAME} in the build directory so the next
+ * build can tell new findings from existing ones. The file is a 12-byte header (magic,
+ * version, count) followed by the fingerprints as big-endian longs in ascending order.
+ * That is 8 bytes per finding, and reading it back is a single bulk copy.</p>
+ *
+ * <p>Fingerprints are uniformly distributed hashes, so lookups go through a directory
+ * indexed by their top bits, with about eight fingerprints per bucket, instead of a
+ * binary search over the whole array.</p>
+ */
+final class FingerprintSet {
+
+    static final String FILE_NAME = "agentscan-fingerprints.bin";
+
+    private static final Logger LOGGER = Logger.getLogger(FingerprintSet.class.getName());
+    private static final int MAGIC = 0x41534650;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    /** How far back to look for a build that stored a set, e.g. past builds that failed early. */
+    private static final int MAX_BUILDS_BACK = 20;
+
+    private final long[] fingerprints;
+    /** Index of the first fingerprint in each bucket, plus the total at the end. */
+    private final int[] buckets;
+    private final int shift;
+
+    private FingerprintSet(long[] sorted) {
+        this.fingerprints = sorted;
+        int bits = Math.max(1, Math.min(24, 32 - Integer.numberOfLeadingZeros(sorted.length >>> 3)));
+        this.shift = Long.SIZE - bits;
+        this.buckets = new int[(1 << bits) + 1];
+        int index = 0;
+        for (int bucket = 0; bucket < buckets.length - 1; bucket++) {
+            buckets[bucket] = index;
+            while (index < sorted.length && bucket(sorted[index]) == bucket) {
+                index++;
+            }
+        }
+        buckets[buckets.length - 1] = sorted.length;
+    }
+
+    /**
+     * Returns the bucket of a fingerprint; the sign bit is flipped so buckets follow signed order.
+     */
+    private int bucket(long fingerprint) {
+        return (int) ((fingerprint ^ Long.MIN_VALUE) >>> shift);
+    }
+
+    /**
+     * Creates a set from the first {@code count} fingerprints, in any order.
+     */
+    static FingerprintSet of(long[] fingerprints, int count) {
+        long[] sorted = Arrays.copyOf(fingerprints, count);
+        Arrays.sort(sorted);
+        return new FingerprintSet(sorted);
+    }
+
+    int size() {
+        return fingerprints.length;
+    }
+
+    long get(int index) {
+        return fingerprints[index];
+    }
+
+    /**
+     * Returns the index of the first fingerprint not less than {@code fingerprint}, or
+     * {@link #size()} if there is none.
+     */
+    int lowerBound(long fingerprint) {
+        int bucket = bucket(fingerprint);
+        int low = buckets[bucket];
+        int high = buckets[bucket + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fingerprints[mid] < fingerprint) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the set stored by the latest earlier build of the run's job, or {@code null}
+     * if no recent build stored a readable one.
+     */
+    static FingerprintSet forPreviousBuild(Run<?, ?> run) {
+        Run<?, ?> previous = run.getPreviousBuild();
+        for (int i = 0; previous != null && i < MAX_BUILDS_BACK; i++, previous = previous.getPreviousBuild()) {
+            File file = new File(previous.getRootDir(), FILE_NAME);
+            if (file.isFile()) {
+                try {
+                    return read(file);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Ignoring unreadable finding fingerprints " + file, e);
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    static FingerprintSet read(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a finding fingerprint file: " + file);
+        }
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != (long) count * Long.BYTES) {
+            throw new IOException("Truncated finding fingerprint file: " + file);
+        }
+        long[] fingerprints = new long[count];
+        buffer.asLongBuffer().get(fingerprints);
+        return new FingerprintSet(fingerprints);
+    }
+
+    /**
+     * Writes the set to {@code file}, replacing it atomically.
+     */
+    void write(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + fingerprints.length * Long.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(fingerprints.length);
+        buffer.asLongBuffer().put(fingerprints);
+        buffer.rewind();
+
+        Path directory = file.getParentFile().toPath();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "fingerprints", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // No-op once the file has been moved into place
+            Files.deleteIfExists(temp);
+        }
+    }
+}
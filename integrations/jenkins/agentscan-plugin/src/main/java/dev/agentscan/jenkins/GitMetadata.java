@@ -0,0 +1,51 @@
+package dev.agentscan.jenkins;
+
+import java.io.Serializable;
+
+/**
+ * Repository metadata read from a workspace's Git directory.
+ *
+ * <p>Each value is {@code null} when it could not be determined, for example the branch
+ * of a detached HEAD. A branch that was not read from the checkout but taken from the
+ * build's environment is marked as such.</p>
+ */
+public final class GitMetadata implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String repositoryUrl;
+    private final String branch;
+    private final String commitSha;
+    private final boolean branchCheckedOut;
+
+    public GitMetadata(String repositoryUrl, String branch, String commitSha) {
+        this(repositoryUrl, branch, commitSha, branch != null);
+    }
+
+    GitMetadata(String repositoryUrl, String branch, String commitSha, boolean branchCheckedOut) {
+        this.repositoryUrl = repositoryUrl;
+        this.branch = branch;
+        this.commitSha = commitSha;
+        this.branchCheckedOut = branchCheckedOut;
+    }
+
+    public String getRepositoryUrl() {
+        return repositoryUrl;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public String getCommitSha() {
+        return commitSha;
+    }
+
+    /**
+     * Returns whether the branch is the one checked out in the workspace, rather than a
+     * fallback from the environment or a default.
+     */
+    public boolean isBranchCheckedOut() {
+        return branchCheckedOut;
+    }
+}
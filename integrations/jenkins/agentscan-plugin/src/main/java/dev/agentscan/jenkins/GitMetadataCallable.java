@@ -0,0 +1,154 @@
+package dev.agentscan.jenkins;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Reads repository URL, branch and commit from the workspace's Git directory in a
+ * single call on the agent that holds the workspace.
+ *
+ * <p>Handles linked worktrees and submodules (where {@code .git} is a file pointing at the
+ * real Git directory), refs stored in {@code packed-refs}, and detached HEADs.</p>
+ */
+class GitMetadataCallable extends MasterToSlaveFileCallable<GitMetadata> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public GitMetadata invoke(File workspace, VirtualChannel channel) throws IOException {
+        File gitDir = resolveGitDir(workspace);
+        if (gitDir == null) {
+            return new GitMetadata(null, null, null);
+        }
+        File commonDir = resolveCommonDir(gitDir);
+
+        String branch = null;
+        String commitSha = null;
+        String head = readFirstLine(new File(gitDir, "HEAD"));
+        if (head != null) {
+            if (head.startsWith("ref: ")) {
+                String ref = head.substring(5).trim();
+                if (ref.startsWith("refs/heads/")) {
+                    branch = ref.substring(11);
+                }
+                commitSha = resolveRef(gitDir, commonDir, ref);
+            } else if (!head.isEmpty()) {
+                // Detached HEAD holds the commit directly
+                commitSha = head;
+            }
+        }
+
+        return new GitMetadata(readRemoteUrl(new File(commonDir, "config")), branch, commitSha);
+    }
+
+    /**
+     * Returns the Git directory, following a {@code gitdir:} pointer file if present.
+     */
+    private static File resolveGitDir(File workspace) throws IOException {
+        File dotGit = new File(workspace, ".git");
+        if (dotGit.isDirectory()) {
+            return dotGit;
+        }
+        if (dotGit.isFile()) {
+            String pointer = readFirstLine(dotGit);
+            if (pointer != null && pointer.startsWith("gitdir:")) {
+                File target = new File(pointer.substring(7).trim());
+                if (!target.isAbsolute()) {
+                    target = new File(workspace, target.getPath());
+                }
+                return target.isDirectory() ? target : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Linked worktrees keep HEAD locally but share refs and config with the main repository.
+     */
+    private static File resolveCommonDir(File gitDir) throws IOException {
+        String common = readFirstLine(new File(gitDir, "commondir"));
+        if (common == null || common.isEmpty()) {
+            return gitDir;
+        }
+        File commonDir = new File(common);
+        return commonDir.isAbsolute() ? commonDir : new File(gitDir, common);
+    }
+
+    private static String resolveRef(File gitDir, File commonDir, String ref) throws IOException {
+        String sha = readFirstLine(new File(gitDir, ref));
+        if (sha == null && !commonDir.equals(gitDir)) {
+            sha = readFirstLine(new File(commonDir, ref));
+        }
+        if (sha != null) {
+            return sha;
+        }
+
+        File packedRefs = new File(commonDir, "packed-refs");
+        if (!packedRefs.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(packedRefs.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Skip the header and peeled tag lines
+                if (line.startsWith("#") || line.startsWith("^")) {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                if (space > 0 && ref.equals(line.substring(space + 1).trim())) {
+                    return line.substring(0, space);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the URL of the {@code origin} remote, or of the first remote if there is no origin.
+     */
+    private static String readRemoteUrl(File config) throws IOException {
+        if (!config.isFile()) {
+            return null;
+        }
+        String firstUrl = null;
+        boolean inOrigin = false;
+        try (BufferedReader reader = Files.newBufferedReader(config.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("[")) {
+                    inOrigin = trimmed.replace(" ", "").equals("[remote\"origin\"]");
+                } else if (trimmed.startsWith("url")) {
+                    int equals = trimmed.indexOf('=');
+                    if (equals < 0) {
+                        continue;
+                    }
+                    String url = trimmed.substring(equals + 1).trim();
+                    if (inOrigin) {
+                        return url;
+                    }
+                    if (firstUrl == null) {
+                        firstUrl = url;
+                    }
+                }
+            }
+        }
+        return firstUrl;
+    }
+
+    private static String readFirstLine(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            return line == null ? null : line.trim();
+        }
+    }
+}
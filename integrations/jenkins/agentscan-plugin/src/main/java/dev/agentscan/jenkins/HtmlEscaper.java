@@ -0,0 +1,71 @@
+package dev.agentscan.jenkins;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escapes text for HTML element content and attribute values in a single pass.
+ *
+ * <p>Runs of characters that need no escaping are copied to the output in bulk, and
+ * nothing is allocated when the text contains nothing to escape.</p>
+ */
+final class HtmlEscaper {
+
+    private HtmlEscaper() {
+    }
+
+    /**
+     * Appends {@code text} with {@code & < > " '} replaced by entities; {@code null} appends nothing.
+     */
+    static void escape(String text, Appendable out) throws IOException {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            String entity = entityFor(text.charAt(i));
+            if (entity != null) {
+                appendRun(text, runStart, i, out);
+                out.append(entity);
+                runStart = i + 1;
+            }
+        }
+        appendRun(text, runStart, length, out);
+    }
+
+    private static String entityFor(char c) {
+        // Everything above '>' is copied as is; checked first as the common case
+        if (c > '>') {
+            return null;
+        }
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#x27;";
+            default:
+                return null;
+        }
+    }
+
+    private static void appendRun(String text, int start, int end, Appendable out) throws IOException {
+        if (start == end) {
+            return;
+        }
+        if (start == 0 && end == text.length()) {
+            out.append(text);
+        } else if (out instanceof Writer) {
+            // Writer.append(CharSequence, int, int) would copy the run into a substring first
+            ((Writer) out).write(text, start, end - start);
+        } else {
+            out.append(text, start, end);
+        }
+    }
+}
@@ -1,34 +1,46 @@
 package dev.agentscan.jenkins;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Generates HTML reports for AgentScan security scan results.
  */
 public class HtmlReportGenerator {
     
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
     public static String generateReport(ScanResult result) {
-        if (!result.isSuccess()) {
-            return generateErrorReport(result.getErrorMessage());
-        }
-        
         StringBuilder html = new StringBuilder();
-        
+        try {
+            generateReport(result, html);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return html.toString();
+    }
+    
+    /**
+     * Streams the report into {@code out} one section and one finding at a time, so the
+     * page is never held in memory as a whole.
+     */
+    public static void generateReport(ScanResult result, Appendable out) throws IOException {
         // HTML header
-        html.append(getHtmlHeader());
+        out.append(getHtmlHeader());
         
-        // Report content
-        html.append(generateReportContent(result));
+        if (result.isSuccess()) {
+            // Report content
+            writeReportContent(result, out);
+        } else {
+            writeErrorContent(result.getErrorMessage(), out);
+        }
         
         // HTML footer
-        html.append(getHtmlFooter());
-        
-        return html.toString();
+        writeHtmlFooter(out);
     }
     
     private static String getHtmlHeader() {
@@ -91,6 +103,7 @@ public class HtmlReportGenerator {
                         text-transform: uppercase;
                         letter-spacing: 0.5px;
                     }
+                    .severity-critical { color: #a40e26; }
                     .severity-high { color: #d1242f; }
                     .severity-medium { color: #fb8500; }
                     .severity-low { color: #1f883d; }
@@ -224,21 +237,18 @@ public class HtmlReportGenerator {
             """;
     }
     
-    private static String getHtmlFooter() {
-        return """
+    private static void writeHtmlFooter(Appendable out) throws IOException {
+        out.append("""
                 <div class="footer">
                     <p>Generated by <strong>AgentScan</strong> - Multi-agent security scanning platform</p>
-                    <p>Report generated on """ + DATE_FORMAT.format(new Date()) + """</p>
+                    <p>Report generated on\s""").append(DATE_FORMAT.format(LocalDateTime.now())).append("</p>\n").append("""
                 </div>
             </body>
             </html>
-            """;
+            """);
     }
     
-    @SuppressWarnings("unchecked")
-    private static String generateReportContent(ScanResult result) {
-        StringBuilder content = new StringBuilder();
-        
+    private static void writeReportContent(ScanResult result, Appendable content) throws IOException {
         // Header
         content.append("""
             <div class="header">
@@ -250,84 +260,79 @@ public class HtmlReportGenerator {
         // Summary metrics
         ScanSummary summary = result.getSummary();
         if (summary != null) {
-            content.append("""
-                <div class="summary">
-                    <div class="metric">
-                        <div class="metric-value">""").append(summary.getTotalFindings()).append("""</div>
-                        <div class="metric-label">Total Findings</div>
-                    </div>
-                    <div class="metric">
-                        <div class="metric-value severity-high">""").append(summary.getHighSeverityCount()).append("""</div>
-                        <div class="metric-label">High Severity</div>
-                    </div>
-                    <div class="metric">
-                        <div class="metric-value severity-medium">""").append(summary.getMediumSeverityCount()).append("""</div>
-                        <div class="metric-label">Medium Severity</div>
-                    </div>
-                    <div class="metric">
-                        <div class="metric-value severity-low">""").append(summary.getLowSeverityCount()).append("""</div>
-                        <div class="metric-label">Low Severity</div>
-                    </div>
-                </div>
-                """);
+            content.append("<div class=\"summary\">\n");
+            writeMetric("metric-value", summary.getTotalFindings(), "Total Findings", content);
+            // Critical and info only get a card when there are any
+            if (summary.getCriticalSeverityCount() > 0) {
+                writeMetric("metric-value severity-critical", summary.getCriticalSeverityCount(), "Critical", content);
+            }
+            writeMetric("metric-value severity-high", summary.getHighSeverityCount(), "High Severity", content);
+            writeMetric("metric-value severity-medium", summary.getMediumSeverityCount(), "Medium Severity", content);
+            writeMetric("metric-value severity-low", summary.getLowSeverityCount(), "Low Severity", content);
+            if (summary.getInfoSeverityCount() > 0) {
+                writeMetric("metric-value severity-info", summary.getInfoSeverityCount(), "Info", content);
+            }
+            content.append("</div>\n");
         }
         
         // Findings details
-        Map<String, Object> resultsData = result.getResultsData();
-        if (resultsData != null) {
-            List<Map<String, Object>> findings = (List<Map<String, Object>>) resultsData.get("findings");
+        List<Finding> findings = result.getFindings();
+        if (!findings.isEmpty()) {
+            content.append("""
+                <div class="findings-section">
+                    <h2>Security Findings</h2>
+                """);
             
-            if (findings != null && !findings.isEmpty()) {
-                content.append("""
-                    <div class="findings-section">
-                        <h2>Security Findings</h2>
-                    """);
-                
-                for (Map<String, Object> finding : findings) {
-                    content.append(generateFindingHtml(finding));
-                }
-                
-                content.append("</div>");
-            } else {
-                content.append("""
-                    <div class="no-findings">
-                        <h3>✅ No Security Issues Found</h3>
-                        <p>Excellent! Your code appears to be secure based on our analysis.</p>
-                    </div>
-                    """);
+            for (Finding finding : findings) {
+                writeFindingHtml(finding, content);
             }
+            
+            content.append("</div>");
+        } else {
+            content.append("""
+                <div class="no-findings">
+                    <h3>✅ No Security Issues Found</h3>
+                    <p>Excellent! Your code appears to be secure based on our analysis.</p>
+                </div>
+                """);
         }
-        
-        return content.toString();
     }
     
-    private static String generateFindingHtml(Map<String, Object> finding) {
-        String title = (String) finding.getOrDefault("title", "Security Issue");
-        String severity = (String) finding.getOrDefault("severity", "info");
-        String description = (String) finding.getOrDefault("description", "No description available");
-        String filePath = (String) finding.getOrDefault("file_path", "unknown");
-        String lineNumber = String.valueOf(finding.getOrDefault("line_number", "0"));
-        String tool = (String) finding.getOrDefault("tool", "unknown");
-        String ruleId = (String) finding.getOrDefault("rule_id", "");
-        String codeSnippet = (String) finding.get("code_snippet");
-        
-        StringBuilder html = new StringBuilder();
+    private static void writeMetric(String valueClass, int value, String label, Appendable out) throws IOException {
+        out.append("    <div class=\"metric\">\n")
+            .append("        <div class=\"").append(valueClass).append("\">").append(Integer.toString(value)).append("</div>\n")
+            .append("        <div class=\"metric-label\">").append(label).append("</div>\n")
+            .append("    </div>\n");
+    }
+    
+    private static void writeFindingHtml(Finding finding, Appendable html) throws IOException {
+        String title = finding.getTitle() != null ? finding.getTitle() : "Security Issue";
+        Severity severity = finding.getSeverity();
+        String description = finding.getDescription() != null ? finding.getDescription() : "No description available";
+        String filePath = finding.getFilePath() != null ? finding.getFilePath() : "unknown";
+        String tool = finding.getTool() != null ? finding.getTool() : "unknown";
+        String ruleId = finding.getRuleId();
+        String codeSnippet = finding.getCodeSnippet();
         
         html.append("""
             <div class="finding">
                 <div class="finding-header">
-                    <h3 class="finding-title">""").append(escapeHtml(title)).append("""</h3>
-                    <span class="severity-badge """).append(severity).append("""">""").append(severity.toUpperCase()).append("""</span>
+                    <h3 class="finding-title">""");
+        escapeHtml(title, html).append("</h3>\n")
+            .append("        <span class=\"severity-badge ").append(severity.getLabel()).append("\">")
+            .append(severity.name()).append("</span>\n").append("""
                 </div>
                 <div class="finding-body">
                     <div class="finding-meta">
                         <div class="meta-item">
                             <div class="meta-label">File</div>
-                            <div class="meta-value">""").append(escapeHtml(filePath)).append(":").append(lineNumber).append("""</div>
+                            <div class="meta-value">""");
+        escapeHtml(filePath, html).append(':').append(Integer.toString(finding.getLineNumber())).append("</div>\n").append("""
                         </div>
                         <div class="meta-item">
                             <div class="meta-label">Tool</div>
-                            <div class="meta-value">""").append(escapeHtml(tool)).append("""</div>
+                            <div class="meta-value">""");
+        escapeHtml(tool, html).append("</div>\n").append("""
                         </div>
             """);
         
@@ -335,51 +340,45 @@ public class HtmlReportGenerator {
             html.append("""
                         <div class="meta-item">
                             <div class="meta-label">Rule ID</div>
-                            <div class="meta-value">""").append(escapeHtml(ruleId)).append("""</div>
+                            <div class="meta-value">""");
+            escapeHtml(ruleId, html).append("</div>\n").append("""
                         </div>
                 """);
         }
         
         html.append("""
                     </div>
-                    <div class="finding-description">""").append(escapeHtml(description)).append("""</div>
-            """);
+                    <div class="finding-description">""");
+        escapeHtml(description, html).append("</div>\n");
         
         if (codeSnippet != null && !codeSnippet.isEmpty()) {
             html.append("""
-                    <div class="code-snippet">""").append(escapeHtml(codeSnippet)).append("""</div>
-                """);
+                    <div class="code-snippet">""");
+            escapeHtml(codeSnippet, html).append("</div>\n");
         }
         
         html.append("""
                 </div>
             </div>
             """);
-        
-        return html.toString();
     }
     
-    private static String generateErrorReport(String errorMessage) {
-        return getHtmlHeader() + """
+    private static void writeErrorContent(String errorMessage, Appendable out) throws IOException {
+        out.append("""
             <div class="header">
                 <h1>❌ Security Scan Failed</h1>
                 <div class="subtitle">An error occurred during the security scan</div>
             </div>
             <div style="background: #ffebe9; border: 1px solid #ffcdd2; border-radius: 8px; padding: 20px; margin: 20px 0;">
                 <h3 style="color: #d1242f; margin-top: 0;">Error Details</h3>
-                <p style="color: #656d76; margin-bottom: 0;">""" + escapeHtml(errorMessage) + """</p>
+                <p style="color: #656d76; margin-bottom: 0;">""");
+        escapeHtml(errorMessage, out).append("</p>\n").append("""
             </div>
-            """ + getHtmlFooter();
+            """);
     }
     
-    private static String escapeHtml(String text) {
-        if (text == null) {
-            return "";
-        }
-        return text.replace("&", "&amp;")
-                  .replace("<", "&lt;")
-                  .replace(">", "&gt;")
-                  .replace("\"", "&quot;")
-                  .replace("'", "&#x27;");
+    private static Appendable escapeHtml(String text, Appendable out) throws IOException {
+        HtmlEscaper.escape(text, out);
+        return out;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes {@code agentscan-results.json} incrementally as the results are parsed.
+ *
+ * <p>Findings keep the API's fields: the modelled ones are written normalized, such as the
+ * severity label and CWE, and any others as received.</p>
+ */
+class JsonResultsWriter implements FindingHandler, Closeable {
+
+    private final JsonGenerator generator;
+
+    JsonResultsWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // Results cut short must not be closed into a document that looks complete
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        this.generator.writeStartObject();
+    }
+
+    @Override
+    public void onMetadata(String name, Object value) throws IOException {
+        generator.writeObjectField(name, value);
+    }
+
+    @Override
+    public void onSummary(Map<String, Object> summary) throws IOException {
+        generator.writeObjectField("summary", summary);
+    }
+
+    @Override
+    public void onFindingsStart() throws IOException {
+        generator.writeArrayFieldStart("findings");
+    }
+
+    @Override
+    public void onFinding(Finding finding) throws IOException {
+        generator.writeStartObject();
+        writeOptional("id", finding.getId());
+        writeOptional("tool", finding.getTool());
+        writeOptional("rule_id", finding.getRuleId());
+        generator.writeStringField("severity", finding.getSeverity().getLabel());
+        writeOptional("category", finding.getCategory());
+        writeOptional("cwe", finding.getCwe());
+        writeOptional("title", finding.getTitle());
+        writeOptional("description", finding.getDescription());
+        writeOptional("file_path", finding.getFilePath());
+        generator.writeNumberField("line_number", finding.getLineNumber());
+        if (finding.getColumnNumber() > 0) {
+            generator.writeNumberField("column_number", finding.getColumnNumber());
+        }
+        writeOptional("code_snippet", finding.getCodeSnippet());
+        generator.writeNumberField("confidence", finding.getConfidence());
+        for (Map.Entry<String, Object> field : finding.getExtraFields().entrySet()) {
+            generator.writeObjectField(field.getKey(), field.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void onFindingsEnd() throws IOException {
+        generator.writeEndArray();
+    }
+
+    @Override
+    public void onEnd() throws IOException {
+        generator.writeEndObject();
+    }
+
+    private void writeOptional(String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
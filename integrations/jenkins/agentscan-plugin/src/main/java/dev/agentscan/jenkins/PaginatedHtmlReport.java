@@ -0,0 +1,435 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.FilePath;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTML report for large scans: a small page plus gzip-compressed JSON chunks of
+ * {@value #CHUNK_SIZE} findings each in {@code agentscan-report/}.
+ *
+ * <p>The page embeds an index of the chunks, with the severities and tools each one
+ * contains. The browser fetches chunks only for the rows scrolled into view, and a
+ * filter only loads chunks that can match it, so the page opens instantly however
+ * many findings there are.</p>
+ *
+ * <p>The summary and the first chunk's findings are also rendered as static HTML, which
+ * the script replaces with the paged view. Jenkins' default Content Security Policy blocks
+ * scripts in archived files, so that static page is what a report opened from the build's
+ * artifacts shows unless the policy is relaxed.</p>
+ */
+final class PaginatedHtmlReport {
+
+    static final int CHUNK_SIZE = 500;
+    static final String DATA_DIRECTORY = "agentscan-report";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private PaginatedHtmlReport() {
+    }
+
+    static void write(ScanResult result, FilePath workspace, String reportName) throws IOException, InterruptedException {
+        FilePath dataDirectory = workspace.child(DATA_DIRECTORY);
+        // Chunks of an earlier, larger report would otherwise linger
+        dataDirectory.deleteRecursive();
+        dataDirectory.mkdirs();
+
+        List<Finding> findings = result.getFindings();
+        FindingHistogram tools = toolCounts(result);
+        List<ChunkInfo> chunks = new ArrayList<>();
+
+        for (int start = 0; start < findings.size(); start += CHUNK_SIZE) {
+            int end = Math.min(start + CHUNK_SIZE, findings.size());
+            ChunkInfo chunk = new ChunkInfo(String.format("%s/findings-%05d.json.gz", DATA_DIRECTORY, chunks.size()),
+                end - start);
+            // Already compressed, so written as is rather than through CompressedFileWriter
+            try (OutputStream out = new GZIPOutputStream(
+                     new BufferedOutputStream(workspace.child(chunk.path).write()), 64 * 1024);
+                 JsonGenerator generator = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                generator.writeStartArray();
+                for (Finding finding : findings.subList(start, end)) {
+                    int toolIndex = tools.indexOf(finding.getTool() != null ? finding.getTool() : "unknown");
+                    chunk.severities.add(finding.getSeverity());
+                    chunk.tools.set(toolIndex);
+                    writeRow(generator, finding, toolIndex);
+                }
+                generator.writeEndArray();
+            }
+            chunks.add(chunk);
+        }
+
+        FilePath reportFile = workspace.child(reportName);
+        try (Writer writer = new BufferedWriter(
+                 new OutputStreamWriter(CompressedFileWriter.write(reportFile), StandardCharsets.UTF_8))) {
+            writeShell(writer, result.getSummary(), findings, tools, chunks);
+        }
+    }
+
+    /**
+     * Returns the per-tool counts from the summary, which also number the tools for the rows.
+     */
+    private static FindingHistogram toolCounts(ScanResult result) {
+        ScanSummary summary = result.getSummary();
+        if (summary != null && (summary.getToolCounts().size() > 0 || result.getFindings().isEmpty())) {
+            return summary.getToolCounts();
+        }
+        // A summary built without the findings, e.g. through the public constructor
+        FindingHistogram tools = new FindingHistogram();
+        for (Finding finding : result.getFindings()) {
+            tools.add(finding.getTool() != null ? finding.getTool() : "unknown");
+        }
+        return tools;
+    }
+
+    /**
+     * Writes a finding as a positional array to keep chunks small; the page reads it by index.
+     */
+    private static void writeRow(JsonGenerator generator, Finding finding, int toolIndex) throws IOException {
+        generator.writeStartArray();
+        generator.writeString(finding.getSeverity().getLabel());
+        generator.writeString(finding.getTitle());
+        generator.writeString(finding.getFilePath());
+        generator.writeNumber(finding.getLineNumber());
+        generator.writeNumber(toolIndex);
+        generator.writeString(finding.getRuleId());
+        generator.writeString(finding.getCategory());
+        generator.writeString(finding.getDescription());
+        generator.writeString(finding.getCodeSnippet());
+        generator.writeEndArray();
+    }
+
+    private static void writeShell(Writer out, ScanSummary summary, List<Finding> findings, FindingHistogram tools,
+                                   List<ChunkInfo> chunks) throws IOException {
+        int total = findings.size();
+        StringWriter index = new StringWriter();
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(index)) {
+            generator.writeStartObject();
+            generator.writeNumberField("total", total);
+            if (summary != null) {
+                generator.writeObjectFieldStart("summary");
+                generator.writeNumberField("total", summary.getTotalFindings());
+                for (Severity severity : Severity.values()) {
+                    generator.writeNumberField(severity.getLabel(), summary.getSeverityCount(severity));
+                }
+                generator.writeEndObject();
+            }
+            generator.writeArrayFieldStart("tools");
+            for (int i = 0; i < tools.size(); i++) {
+                generator.writeString(tools.getValue(i));
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("toolCounts");
+            for (int i = 0; i < tools.size(); i++) {
+                generator.writeNumber(tools.getCount(i));
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("chunkSize", CHUNK_SIZE);
+            generator.writeArrayFieldStart("chunks");
+            for (ChunkInfo chunk : chunks) {
+                generator.writeStartObject();
+                generator.writeStringField("path", chunk.path);
+                generator.writeNumberField("count", chunk.count);
+                generator.writeArrayFieldStart("severities");
+                for (Severity severity : chunk.severities) {
+                    generator.writeString(severity.getLabel());
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("tools");
+                for (int i = chunk.tools.nextSetBit(0); i >= 0; i = chunk.tools.nextSetBit(i + 1)) {
+                    generator.writeNumber(i);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        out.append(SHELL_HEAD);
+        writeSummary(out, summary, total);
+        writeFirstPage(out, findings.subList(0, Math.min(CHUNK_SIZE, total)), total);
+        out.append(SHELL_VIEW);
+        // Keeps the JSON from closing the script element early
+        out.append(index.toString().replace("<", "\\u003c"));
+        out.append(SHELL_TAIL);
+    }
+
+    private static void writeSummary(Writer out, ScanSummary summary, int total) throws IOException {
+        out.append("<div class=\"summary\">\n");
+        writeMetric(out, summary != null ? summary.getTotalFindings() : total, "Total Findings", "metric-value");
+        if (summary != null) {
+            // Critical and info only get a card when there are any
+            if (summary.getCriticalSeverityCount() > 0) {
+                writeMetric(out, summary.getCriticalSeverityCount(), "Critical", "metric-value critical");
+            }
+            writeMetric(out, summary.getHighSeverityCount(), "High Severity", "metric-value high");
+            writeMetric(out, summary.getMediumSeverityCount(), "Medium Severity", "metric-value medium");
+            writeMetric(out, summary.getLowSeverityCount(), "Low Severity", "metric-value low");
+            if (summary.getInfoSeverityCount() > 0) {
+                writeMetric(out, summary.getInfoSeverityCount(), "Info", "metric-value info");
+            }
+        }
+        out.append("</div>\n");
+    }
+
+    private static void writeMetric(Writer out, int value, String label, String valueClass) throws IOException {
+        out.append("<div class=\"metric\"><div class=\"").append(valueClass).append("\">")
+            .append(Integer.toString(value)).append("</div><div class=\"metric-label\">").append(label)
+            .append("</div></div>\n");
+    }
+
+    /**
+     * Writes the findings of the first chunk as a plain table for when scripts are blocked.
+     */
+    private static void writeFirstPage(Writer out, List<Finding> firstPage, int total) throws IOException {
+        out.append("<div id=\"static-findings\">\n<p class=\"status\">");
+        if (firstPage.size() < total) {
+            out.append("Showing the first ").append(Integer.toString(firstPage.size())).append(" of ")
+                .append(Integer.toString(total)).append(" findings. Paging and filtering need JavaScript, which")
+                .append(" Jenkins' Content Security Policy blocks in archived reports; all findings are in")
+                .append(" agentscan-results.json.");
+        } else {
+            out.append(Integer.toString(total)).append(" findings");
+        }
+        out.append("</p>\n<table class=\"static\">\n")
+            .append("<tr><th>Severity</th><th>Title</th><th>Location</th><th>Tool</th></tr>\n");
+        for (Finding finding : firstPage) {
+            String severity = finding.getSeverity().getLabel();
+            out.append("<tr><td class=\"badge ").append(severity).append("\">").append(severity).append("</td><td>");
+            HtmlEscaper.escape(finding.getTitle() != null ? finding.getTitle() : "Security Issue", out);
+            out.append("</td><td class=\"mono\">");
+            HtmlEscaper.escape(finding.getFilePath() != null ? finding.getFilePath() : "unknown", out);
+            out.append(':').append(Integer.toString(finding.getLineNumber())).append("</td><td class=\"mono\">");
+            HtmlEscaper.escape(finding.getTool() != null ? finding.getTool() : "unknown", out);
+            out.append("</td></tr>\n");
+        }
+        out.append("</table>\n</div>\n");
+    }
+
+    private static final class ChunkInfo {
+        final String path;
+        final int count;
+        final EnumSet<Severity> severities = EnumSet.noneOf(Severity.class);
+        final BitSet tools = new BitSet();
+
+        ChunkInfo(String path, int count) {
+            this.path = path;
+            this.count = count;
+        }
+    }
+
+    private static final String SHELL_HEAD = """
+        <!DOCTYPE html>
+        <html lang="en">
+        <head>
+            <meta charset="UTF-8">
+            <meta name="viewport" content="width=device-width, initial-scale=1.0">
+            <title>AgentScan Security Report</title>
+            <style>
+                body { font-family: -apple-system, BlinkMacSystemFont, 'Segoe UI', Roboto, 'Helvetica Neue', Arial, sans-serif;
+                       color: #24292f; max-width: 1200px; margin: 0 auto; padding: 20px; }
+                h1 { font-size: 32px; font-weight: 600; margin: 0 0 20px; }
+                .summary { display: grid; grid-template-columns: repeat(auto-fit, minmax(160px, 1fr)); gap: 16px; margin-bottom: 24px; }
+                .metric { background: #f6f8fa; border: 1px solid #d0d7de; border-radius: 8px; padding: 16px; text-align: center; }
+                .metric-value { font-size: 30px; font-weight: 700; }
+                .metric-label { color: #656d76; font-size: 13px; text-transform: uppercase; }
+                .filters { display: flex; gap: 12px; margin-bottom: 8px; align-items: center; }
+                .filters input { flex: 1; }
+                .status { color: #656d76; font-size: 13px; margin-bottom: 8px; }
+                .viewport { height: 60vh; overflow-y: auto; position: relative; border: 1px solid #d0d7de; border-radius: 8px; }
+                .row { position: absolute; left: 0; right: 0; height: 36px; display: grid; align-items: center;
+                       grid-template-columns: 90px 1fr 35% 120px; gap: 12px; padding: 0 12px;
+                       border-bottom: 1px solid #eaeef2; cursor: pointer; white-space: nowrap; }
+                .row > span { overflow: hidden; text-overflow: ellipsis; }
+                .row:hover, .row.selected { background: #f6f8fa; }
+                .mono { font-family: 'SF Mono', Monaco, Consolas, monospace; font-size: 12px; }
+                .badge { font-size: 11px; font-weight: 600; text-transform: uppercase; }
+                .critical, .high { color: #d1242f; } .medium { color: #fb8500; } .low { color: #1f883d; } .info { color: #0969da; }
+                .details { margin-top: 16px; border: 1px solid #d0d7de; border-radius: 8px; padding: 16px; }
+                .details:empty { display: none; }
+                .details pre { background: #f6f8fa; padding: 12px; border-radius: 6px; white-space: pre-wrap; }
+                table.static { width: 100%; border-collapse: collapse; }
+                table.static th, table.static td { text-align: left; padding: 8px 12px; border-bottom: 1px solid #eaeef2; }
+            </style>
+        </head>
+        <body>
+            <h1>🔒 Security Scan Report</h1>
+        """;
+
+    private static final String SHELL_VIEW = """
+            <div id="paged-findings" hidden>
+            <div class="filters">
+                <select id="severity"><option value="">All severities</option></select>
+                <select id="tool"><option value="">All tools</option></select>
+                <input id="file" type="search" placeholder="Filter by file path">
+            </div>
+            <div class="status" id="status"></div>
+            <div class="viewport" id="viewport"><div id="spacer"></div></div>
+            <div class="details" id="details"></div>
+            </div>
+            <script type="application/json" id="agentscan-index">""";
+
+    private static final String SHELL_TAIL = """
+        </script>
+            <script>
+            (function () {
+                var index = JSON.parse(document.getElementById('agentscan-index').textContent);
+                var ROW_HEIGHT = 36, OVERSCAN = 10, SEVERITIES = ['critical', 'high', 'medium', 'low', 'info'];
+                var viewport = document.getElementById('viewport'), spacer = document.getElementById('spacer');
+                var status = document.getElementById('status'), details = document.getElementById('details');
+                var severityFilter = document.getElementById('severity'), toolFilter = document.getElementById('tool');
+                var fileFilter = document.getElementById('file');
+                var chunks = [], pending = {}, view = null, generation = 0, selected = -1;
+
+                function el(tag, cls, text) {
+                    var e = document.createElement(tag);
+                    if (cls) { e.className = cls; }
+                    if (text !== undefined && text !== null) { e.textContent = String(text); }
+                    return e;
+                }
+
+                function gunzip(buffer) {
+                    var bytes = new Uint8Array(buffer);
+                    // The server may already have decoded the gzip transfer
+                    if (bytes[0] !== 0x1f || bytes[1] !== 0x8b) { return Promise.resolve(new Blob([bytes]).text()); }
+                    var stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('gzip'));
+                    return new Response(stream).text();
+                }
+
+                function load(c) {
+                    if (chunks[c]) { return Promise.resolve(chunks[c]); }
+                    if (!pending[c]) {
+                        pending[c] = fetch(index.chunks[c].path)
+                            .then(function (r) { if (!r.ok) { throw new Error(r.status); } return r.arrayBuffer(); })
+                            .then(gunzip)
+                            .then(function (text) { chunks[c] = JSON.parse(text); delete pending[c]; return chunks[c]; });
+                    }
+                    return pending[c];
+                }
+
+                function count() { return view ? view.length : index.total; }
+
+                function finding(ref) {
+                    var rows = chunks[Math.floor(ref / index.chunkSize)];
+                    return rows ? rows[ref % index.chunkSize] : null;
+                }
+
+                function render() {
+                    spacer.style.height = (count() * ROW_HEIGHT) + 'px';
+                    var first = Math.max(0, Math.floor(viewport.scrollTop / ROW_HEIGHT) - OVERSCAN);
+                    var last = Math.min(count(), Math.ceil((viewport.scrollTop + viewport.clientHeight) / ROW_HEIGHT) + OVERSCAN);
+                    var rows = document.createDocumentFragment(), missing = {};
+                    for (var i = first; i < last; i++) {
+                        var ref = view ? view[i] : i, f = finding(ref), row = el('div', 'row');
+                        row.style.top = (i * ROW_HEIGHT) + 'px';
+                        if (f) {
+                            row.appendChild(el('span', 'badge ' + f[0], f[0]));
+                            row.appendChild(el('span', null, f[1] || 'Security Issue'));
+                            row.appendChild(el('span', 'mono', (f[2] || 'unknown') + ':' + f[3]));
+                            row.appendChild(el('span', 'mono', index.tools[f[4]]));
+                            row.onclick = show.bind(null, ref);
+                            if (ref === selected) { row.className += ' selected'; }
+                        } else {
+                            row.appendChild(el('span', null, 'Loading…'));
+                            missing[Math.floor(ref / index.chunkSize)] = true;
+                        }
+                        rows.appendChild(row);
+                    }
+                    while (spacer.firstChild) { spacer.removeChild(spacer.firstChild); }
+                    spacer.appendChild(rows);
+                    Object.keys(missing).forEach(function (c) { load(+c).then(render, fail); });
+                }
+
+                function show(ref) {
+                    var f = finding(ref);
+                    selected = ref;
+                    while (details.firstChild) { details.removeChild(details.firstChild); }
+                    details.appendChild(el('h3', null, f[1] || 'Security Issue'));
+                    details.appendChild(el('div', 'badge ' + f[0], f[0]));
+                    details.appendChild(el('p', 'mono', (f[2] || 'unknown') + ':' + f[3] + ' · ' + index.tools[f[4]]
+                        + (f[5] ? ' · ' + f[5] : '') + (f[6] ? ' · ' + f[6] : '')));
+                    details.appendChild(el('p', null, f[7] || 'No description available'));
+                    if (f[8]) { details.appendChild(el('pre', 'mono', f[8])); }
+                    render();
+                }
+
+                function fail(error) { status.textContent = 'Failed to load findings: ' + error.message; }
+
+                function matches(f, severity, tool, file) {
+                    return (!severity || f[0] === severity) && (tool === '' || f[4] === +tool)
+                        && (!file || (f[2] || '').toLowerCase().indexOf(file) >= 0);
+                }
+
+                function applyFilters() {
+                    var severity = severityFilter.value, tool = toolFilter.value, file = fileFilter.value.toLowerCase();
+                    var current = ++generation;
+                    viewport.scrollTop = 0;
+                    if (!severity && tool === '' && !file) {
+                        view = null;
+                        status.textContent = index.total + ' findings';
+                        render();
+                        return;
+                    }
+                    view = [];
+                    var c = 0;
+                    (function next() {
+                        if (current !== generation) { return; }
+                        // Chunks whose index rules out a match are never fetched
+                        while (c < index.chunks.length && ((severity && index.chunks[c].severities.indexOf(severity) < 0)
+                                || (tool !== '' && index.chunks[c].tools.indexOf(+tool) < 0))) { c++; }
+                        if (c >= index.chunks.length) {
+                            status.textContent = view.length + ' of ' + index.total + ' findings match';
+                            render();
+                            return;
+                        }
+                        load(c).then(function (rows) {
+                            if (current !== generation) { return; }
+                            for (var i = 0; i < rows.length; i++) {
+                                if (matches(rows[i], severity, tool, file)) { view.push(c * index.chunkSize + i); }
+                            }
+                            c++;
+                            status.textContent = view.length + ' matches so far, searching ' + c + '/' + index.chunks.length + ' chunks…';
+                            render();
+                            next();
+                        }, fail);
+                    })();
+                }
+
+                var s = index.summary || {};
+                // Scripts run, so the paged view replaces the static first page
+                var staticFindings = document.getElementById('static-findings');
+                staticFindings.parentNode.removeChild(staticFindings);
+                document.getElementById('paged-findings').hidden = false;
+                SEVERITIES.forEach(function (sev) {
+                    var o = el('option', null, sev + (s[sev] !== undefined ? ' (' + s[sev] + ')' : '')); o.value = sev; severityFilter.appendChild(o);
+                });
+                index.tools.forEach(function (tool, i) {
+                    var o = el('option', null, tool + ' (' + index.toolCounts[i] + ')'); o.value = i; toolFilter.appendChild(o);
+                });
+
+                var debounce;
+                severityFilter.onchange = toolFilter.onchange = applyFilters;
+                fileFilter.oninput = function () { clearTimeout(debounce); debounce = setTimeout(applyFilters, 200); };
+                viewport.onscroll = function () { window.requestAnimationFrame(render); };
+                applyFilters();
+            })();
+            </script>
+        </body>
+        </html>
+        """;
+}
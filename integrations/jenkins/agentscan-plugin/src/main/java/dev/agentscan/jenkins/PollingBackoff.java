@@ -0,0 +1,98 @@
+package dev.agentscan.jenkins;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Computes the delay between scan status checks.
+ *
+ * <p>Delays start short and grow exponentially up to a cap. Each delay is reduced by a
+ * random fraction so that many builds started together do not poll in lockstep. A
+ * server hint ({@code Retry-After} or {@code next_poll_after_ms}) takes precedence over
+ * the computed delay, but is never shorter than the initial delay.</p>
+ */
+final class PollingBackoff {
+
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final double jitterRatio;
+    private long currentDelayMillis;
+
+    PollingBackoff(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitterRatio) {
+        this.maxDelayMillis = Math.max(1, maxDelayMillis);
+        this.multiplier = Math.max(1.0, multiplier);
+        this.jitterRatio = Math.min(1.0, Math.max(0.0, jitterRatio));
+        this.currentDelayMillis = Math.min(this.maxDelayMillis, Math.max(1, initialDelayMillis));
+        this.minDelayMillis = currentDelayMillis;
+    }
+
+    static PollingBackoff fromConfiguration() {
+        AgentScanGlobalConfiguration config = AgentScanGlobalConfiguration.get();
+        return new PollingBackoff(
+            config.getPollInitialIntervalMillis(),
+            config.getPollMaxIntervalMillis(),
+            config.getPollBackoffMultiplier(),
+            config.getPollJitterPercent() / 100.0);
+    }
+
+    /**
+     * Returns the next delay and advances the backoff.
+     *
+     * @param serverHintMillis delay requested by the server, or a negative value if none
+     */
+    long nextDelay(long serverHintMillis) {
+        long base = currentDelayMillis;
+        currentDelayMillis = Math.min(maxDelayMillis, (long) Math.ceil(currentDelayMillis * multiplier));
+
+        if (serverHintMillis >= 0) {
+            // A hint of 0 must not turn into a tight loop
+            return Math.max(minDelayMillis, serverHintMillis);
+        }
+        long jitter = (long) (base * jitterRatio * ThreadLocalRandom.current().nextDouble());
+        return Math.max(1, base - jitter);
+    }
+
+    /**
+     * Reads the {@code Retry-After} header as either delta-seconds or an HTTP date.
+     *
+     * @return the requested delay in milliseconds, or {@code -1} if absent or malformed
+     */
+    static long retryAfterMillis(HttpResponse response) {
+        Header header = response.getFirstHeader("Retry-After");
+        if (header == null || header.getValue() == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000L);
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Reads the {@code next_poll_after_ms} hint from a status response body.
+     *
+     * @return the hinted delay in milliseconds, or {@code -1} if absent or malformed
+     */
+    static long bodyHintMillis(Map<String, Object> statusMap) {
+        Object value = statusMap.get("next_poll_after_ms");
+        if (value instanceof Number) {
+            return Math.max(0, ((Number) value).longValue());
+        } else if (value instanceof String) {
+            try {
+                return Math.max(0, Long.parseLong((String) value));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,460 @@
+package dev.agentscan.jenkins;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled quality gate: the conditions under which a scan fails the build.
+ *
+ * <p>A policy has one clause per line (or separated by {@code ;}, {@code ,} or
+ * {@code or}); {@code #} starts a comment:</p>
+ * <pre>
+ * critical &gt; 0
+ * high &gt; 5 in src/**
+ * medium+ &gt;= 20 tool semgrep not in "**&#47;test/**"
+ * new high &gt; 5 in src/**
+ * ignore rule generic.secrets.test-key in "**&#47;test/**"
+ * </pre>
+ * <p>A condition is a severity ({@code critical}, {@code high}, {@code medium},
+ * {@code low}, {@code info}; {@code high+} for that severity and above; {@code any}),
+ * an optional {@code >} or {@code >=} threshold ({@code > 0} if omitted) and filters,
+ * all of which must match: {@code in <glob>}, {@code tool <name>}, {@code rule <id>},
+ * {@code cwe <id>} and {@code category <name>}, each optionally preceded by {@code not}.
+ * A condition starting with {@code new} only counts findings that the previous build did
+ * not have, e.g. {@code new critical > 0}. The build fails if any condition holds.
+ * Findings matching an {@code ignore} clause are left out of every condition.</p>
+ *
+ * <p>Each clause compiles to a chain of predicates, cheapest first. An {@link Evaluator}
+ * counts findings as they are read, so the gate trips on the finding that crosses a
+ * threshold rather than after the download.</p>
+ */
+final class QualityGate {
+
+    private static final int MAX_COMPILED = 64;
+
+    /** Compiled gates by policy text, so each job configuration is parsed once. */
+    private static final Map<String, QualityGate> COMPILED = new LinkedHashMap<String, QualityGate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, QualityGate> eldest) {
+            return size() > MAX_COMPILED;
+        }
+    };
+
+    private final List<Predicate<Finding>> ignores;
+    private final List<Condition> conditions;
+
+    private QualityGate(List<Predicate<Finding>> ignores, List<Condition> conditions) {
+        this.ignores = ignores;
+        this.conditions = conditions;
+    }
+
+    /**
+     * Returns the compiled gate for {@code policy}; an empty policy never fails.
+     *
+     * @throws IllegalArgumentException if the policy does not parse, with the offending line
+     */
+    static QualityGate compile(String policy) {
+        String key = policy != null ? policy : "";
+        synchronized (COMPILED) {
+            QualityGate gate = COMPILED.get(key);
+            if (gate != null) {
+                return gate;
+            }
+        }
+        QualityGate gate = new PolicyParser(key).parse();
+        synchronized (COMPILED) {
+            COMPILED.put(key, gate);
+        }
+        return gate;
+    }
+
+    /**
+     * Translates a {@code failOnSeverity} setting into the equivalent policy.
+     *
+     * @throws IllegalArgumentException for a value other than critical, high, medium, low or never
+     */
+    static String forFailOnSeverity(String failOnSeverity) {
+        String value = failOnSeverity != null ? failOnSeverity.trim().toLowerCase(Locale.ROOT) : "";
+        switch (value) {
+            case "critical":
+                return "critical > 0";
+            case "high":
+                return "high+ > 0";
+            case "medium":
+                return "medium+ > 0";
+            case "low":
+                return "any > 0";
+            case "never":
+            case "":
+                return "";
+            default:
+                throw new IllegalArgumentException("Unknown fail-on severity '" + failOnSeverity
+                    + "'; use critical, high, medium, low or never");
+        }
+    }
+
+    boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    /**
+     * @param diff the comparison with the previous build for {@code new} conditions; every
+     *     finding counts as new if {@code null}
+     */
+    Evaluator newEvaluator(TripListener listener, FindingDiff diff) {
+        return new Evaluator(listener, diff);
+    }
+
+    /**
+     * Notified when a condition first holds, with the finding that tipped it.
+     */
+    interface TripListener {
+        void tripped(String condition, Finding finding) throws IOException;
+    }
+
+    /**
+     * Counts the findings matching each condition while results stream past.
+     */
+    final class Evaluator implements FindingHandler {
+
+        private final TripListener listener;
+        private final FindingDiff diff;
+        private final int[] counts = new int[conditions.size()];
+        private boolean tripped;
+
+        private Evaluator(TripListener listener, FindingDiff diff) {
+            this.listener = listener;
+            this.diff = diff;
+        }
+
+        @Override
+        public void onFinding(Finding finding) throws IOException {
+            for (Predicate<Finding> ignore : ignores) {
+                if (ignore.test(finding)) {
+                    return;
+                }
+            }
+            for (int i = 0; i < counts.length; i++) {
+                Condition condition = conditions.get(i);
+                if (!condition.filter.test(finding)
+                        || (condition.newOnly && diff != null && !diff.isNew(finding))) {
+                    continue;
+                }
+                if (condition.isExceeded(++counts[i])
+                        && !condition.isExceeded(counts[i] - 1)) {
+                    tripped = true;
+                    if (listener != null) {
+                        listener.tripped(condition.text, finding);
+                    }
+                }
+            }
+        }
+
+        boolean isTripped() {
+            return tripped;
+        }
+
+        /**
+         * Returns each condition that holds, with the number of findings it matched.
+         */
+        List<String> getViolations() {
+            if (!tripped) {
+                return Collections.emptyList();
+            }
+            List<String> violations = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                Condition condition = conditions.get(i);
+                if (condition.isExceeded(counts[i])) {
+                    violations.add(condition.text + " (" + counts[i] + (counts[i] == 1 ? " finding)" : " findings)"));
+                }
+            }
+            return violations;
+        }
+    }
+
+    /**
+     * Thrown by a fail-fast {@link TripListener} to stop reading results.
+     */
+    static final class FailedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        FailedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Condition {
+        final String text;
+        final Predicate<Finding> filter;
+        final int threshold;
+        final boolean inclusive;
+        final boolean newOnly;
+
+        Condition(String text, Predicate<Finding> filter, int threshold, boolean inclusive, boolean newOnly) {
+            this.text = text;
+            this.filter = filter;
+            this.threshold = threshold;
+            this.inclusive = inclusive;
+            this.newOnly = newOnly;
+        }
+
+        boolean isExceeded(int count) {
+            return inclusive ? count >= threshold : count > threshold;
+        }
+    }
+
+    /**
+     * Recursive-descent parser for the policy language.
+     */
+    private static final class PolicyParser {
+
+        private static final String SEPARATOR = "\n";
+
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Integer> lines = new ArrayList<>();
+        private int position;
+
+        PolicyParser(String policy) {
+            tokenize(policy);
+        }
+
+        QualityGate parse() {
+            List<Predicate<Finding>> ignores = new ArrayList<>();
+            List<Condition> conditions = new ArrayList<>();
+            while (peek() != null) {
+                if (SEPARATOR.equals(peek()) || "or".equalsIgnoreCase(peek())) {
+                    position++;
+                    continue;
+                }
+                if (accept("fail")) {
+                    accept("if");
+                }
+                int start = position;
+                if (accept("ignore")) {
+                    Predicate<Finding> filter = parseFilters();
+                    if (filter == null) {
+                        throw error("'ignore' needs at least one filter");
+                    }
+                    ignores.add(filter);
+                } else {
+                    conditions.add(parseCondition(start));
+                }
+            }
+            return new QualityGate(ignores, conditions);
+        }
+
+        private Condition parseCondition(int start) {
+            boolean newOnly = accept("new");
+            String severity = next("a severity");
+            EnumSet<Severity> severities = parseSeverity(severity);
+
+            int threshold = 0;
+            boolean inclusive = false;
+            if (">".equals(peek()) || ">=".equals(peek())) {
+                inclusive = ">=".equals(next(null));
+                String number = next("a number");
+                try {
+                    threshold = Integer.parseInt(number);
+                } catch (NumberFormatException e) {
+                    throw error("Expected a number but found '" + number + "'");
+                }
+                if (threshold < 0 || (inclusive && threshold == 0)) {
+                    throw error("'" + severity + " " + (inclusive ? ">= " : "> ") + number + "' always holds");
+                }
+            }
+
+            Predicate<Finding> filter = finding -> severities.contains(finding.getSeverity());
+            Predicate<Finding> filters = parseFilters();
+            if (filters != null) {
+                filter = filter.and(filters);
+            }
+            return new Condition(String.join(" ", tokens.subList(start, position)), filter, threshold, inclusive,
+                newOnly);
+        }
+
+        private EnumSet<Severity> parseSeverity(String word) {
+            String value = word.toLowerCase(Locale.ROOT);
+            if ("any".equals(value)) {
+                return EnumSet.allOf(Severity.class);
+            }
+            boolean andAbove = value.endsWith("+");
+            String label = andAbove ? value.substring(0, value.length() - 1) : value;
+            for (Severity severity : Severity.values()) {
+                if (severity.getLabel().equals(label)) {
+                    // Severities are declared from most to least severe
+                    return andAbove ? EnumSet.range(Severity.CRITICAL, severity) : EnumSet.of(severity);
+                }
+            }
+            throw error("Expected a severity (critical, high, medium, low, info or any) but found '" + word + "'");
+        }
+
+        /**
+         * Parses the filters up to the end of the clause, and-ed together; {@code null} if none.
+         */
+        private Predicate<Finding> parseFilters() {
+            Predicate<Finding> filters = null;
+            while (peek() != null && !SEPARATOR.equals(peek()) && !"or".equalsIgnoreCase(peek())) {
+                if (accept("and")) {
+                    continue;
+                }
+                boolean negated = accept("not");
+                Predicate<Finding> filter = parseFilter();
+                if (negated) {
+                    filter = filter.negate();
+                }
+                filters = filters == null ? filter : filters.and(filter);
+            }
+            return filters;
+        }
+
+        private Predicate<Finding> parseFilter() {
+            String keyword = next("a filter").toLowerCase(Locale.ROOT);
+            switch (keyword) {
+                case "in": {
+                    Pattern glob = compileGlob(next("a path pattern"));
+                    return finding -> finding.getFilePath() != null
+                        && glob.matcher(normalizePath(finding.getFilePath())).matches();
+                }
+                case "tool": {
+                    String tool = next("a tool name");
+                    return finding -> tool.equalsIgnoreCase(finding.getTool());
+                }
+                case "rule": {
+                    String rule = next("a rule ID");
+                    return finding -> rule.equals(finding.getRuleId());
+                }
+                case "cwe": {
+                    String value = next("a CWE");
+                    String cwe = value.toUpperCase(Locale.ROOT).startsWith("CWE-") ? value.toUpperCase(Locale.ROOT)
+                        : "CWE-" + value;
+                    return finding -> cwe.equals(finding.getCwe());
+                }
+                case "category": {
+                    String category = next("a category");
+                    return finding -> category.equalsIgnoreCase(finding.getCategory());
+                }
+                default:
+                    position--;
+                    throw error("Expected in, tool, rule, cwe or category but found '" + tokens.get(position) + "'");
+            }
+        }
+
+        private void tokenize(String policy) {
+            int line = 1;
+            int i = 0;
+            while (i < policy.length()) {
+                char c = policy.charAt(i);
+                if (c == '\n' || c == ';' || c == ',') {
+                    add(SEPARATOR, line);
+                    if (c == '\n') {
+                        line++;
+                    }
+                    i++;
+                } else if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '#') {
+                    while (i < policy.length() && policy.charAt(i) != '\n') {
+                        i++;
+                    }
+                } else if (c == '>') {
+                    boolean inclusive = i + 1 < policy.length() && policy.charAt(i + 1) == '=';
+                    add(inclusive ? ">=" : ">", line);
+                    i += inclusive ? 2 : 1;
+                } else if (c == '"' || c == '\'') {
+                    int end = policy.indexOf(c, i + 1);
+                    if (end < 0 || policy.substring(i, end).indexOf('\n') >= 0) {
+                        throw new IllegalArgumentException("Unterminated quote on line " + line);
+                    }
+                    add(policy.substring(i + 1, end), line);
+                    i = end + 1;
+                } else {
+                    int start = i;
+                    while (i < policy.length() && !Character.isWhitespace(policy.charAt(i))
+                            && ";,#>".indexOf(policy.charAt(i)) < 0) {
+                        i++;
+                    }
+                    add(policy.substring(start, i), line);
+                }
+            }
+        }
+
+        private void add(String token, int line) {
+            tokens.add(token);
+            lines.add(line);
+        }
+
+        private String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        private boolean accept(String keyword) {
+            if (keyword.equalsIgnoreCase(peek())) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private String next(String expected) {
+            String token = peek();
+            if (token == null || SEPARATOR.equals(token)) {
+                throw error("Expected " + expected + " at the end of the clause");
+            }
+            position++;
+            return token;
+        }
+
+        private IllegalArgumentException error(String message) {
+            int index = Math.min(position, lines.size() - 1);
+            return new IllegalArgumentException(index >= 0 ? message + " on line " + lines.get(index) : message);
+        }
+    }
+
+    /**
+     * Compiles a path glob: {@code **} spans directories, {@code *} and {@code ?} stay within
+     * one. A pattern without a {@code /} matches a file name in any directory.
+     */
+    private static Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        String pattern = normalizePath(glob);
+        if (pattern.indexOf('/') < 0) {
+            regex.append("(?:.*/)?");
+        }
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                boolean directories = i + 2 < pattern.length() && pattern.charAt(i + 2) == '/';
+                regex.append(directories ? "(?:.*/)?" : ".*");
+                i += directories ? 2 : 1;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+                    regex.append('\\');
+                }
+                regex.append(c);
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static String normalizePath(String path) {
+        String normalized = path.indexOf('\\') >= 0 ? path.replace('\\', '/') : path;
+        int start = 0;
+        while (normalized.startsWith("./", start) || normalized.startsWith("/", start)) {
+            start += normalized.charAt(start) == '.' ? 2 : 1;
+        }
+        return start > 0 ? normalized.substring(start) : normalized;
+    }
+}
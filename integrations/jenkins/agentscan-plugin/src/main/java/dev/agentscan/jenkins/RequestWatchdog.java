@@ -0,0 +1,84 @@
+package dev.agentscan.jenkins;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.io.Closeable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aborts an HTTP request when the thread that made it is interrupted, the scan
+ * deadline passes or the scan is superseded.
+ *
+ * <p>Blocking socket reads ignore interrupts, so without it an aborted build would sit in
+ * a read until the socket timeout, and a slow download could run past the deadline. The
+ * watchdog checks every {@value #CHECK_INTERVAL_MILLIS} ms on its own thread, so it
+ * still runs when every {@link ScanWaitScheduler} thread is blocked in a request.</p>
+ */
+final class RequestWatchdog implements Closeable {
+
+    private static final long CHECK_INTERVAL_MILLIS = 200;
+
+    private final HttpRequestBase request;
+    private final Thread thread;
+    private final long deadline;
+    private final Future<?> stop;
+    private final ScheduledFuture<?> check;
+
+    private RequestWatchdog(HttpRequestBase request, long deadline, Future<?> stop) {
+        this.request = request;
+        this.thread = Thread.currentThread();
+        this.deadline = deadline;
+        this.stop = stop;
+        this.check = Holder.EXECUTOR.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MILLIS,
+            CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Watches {@code request} until the returned watchdog is closed; close it together with the response.
+     */
+    static RequestWatchdog watch(HttpRequestBase request, long deadline) {
+        return new RequestWatchdog(request, deadline, null);
+    }
+
+    /**
+     * Watches {@code request} like {@link #watch(HttpRequestBase, long)}, also aborting it once {@code stop} is done.
+     */
+    static RequestWatchdog watch(HttpRequestBase request, long deadline, Future<?> stop) {
+        return new RequestWatchdog(request, deadline, stop);
+    }
+
+    private void check() {
+        if (thread.isInterrupted() || System.currentTimeMillis() >= deadline || (stop != null && stop.isDone())) {
+            request.abort();
+            check.cancel(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        check.cancel(false);
+    }
+
+    @Terminator
+    public static void shutdown() {
+        Holder.EXECUTOR.shutdownNow();
+    }
+
+    private static final class Holder {
+        static final ScheduledExecutorService EXECUTOR = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new NamingThreadFactory(new DaemonThreadFactory(), "AgentScan request watchdog"));
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
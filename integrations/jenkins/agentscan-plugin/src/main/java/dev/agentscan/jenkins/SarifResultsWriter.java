@@ -0,0 +1,229 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@code agentscan-results.sarif} incrementally, one SARIF result per finding.
+ *
+ * <p>Results reference their rule and file by index. The {@code tool.driver.rules} and
+ * {@code artifacts} tables are collected while results stream out and written after the
+ * {@code results} array, which SARIF allows since object members are unordered. Memory
+ * therefore grows with the number of distinct rules and files, not findings.</p>
+ */
+class SarifResultsWriter implements FindingHandler, Closeable {
+
+    static final String SARIF_SCHEMA =
+        "https://raw.githubusercontent.com/oasis-tcs/sarif-spec/master/Schemata/sarif-schema-2.1.0.json";
+
+    static final String FINGERPRINT_KEY = "agentscanFingerprint/v1";
+
+    private static final String UNKNOWN_RULE = "agentscan/unknown";
+
+    private final JsonGenerator generator;
+    private final Map<String, Integer> ruleIndexes = new HashMap<>();
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, Integer> artifactIndexes = new HashMap<>();
+    private final List<String> artifacts = new ArrayList<>();
+
+    SarifResultsWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeStringField("version", "2.1.0");
+        generator.writeStringField("$schema", SARIF_SCHEMA);
+        generator.writeArrayFieldStart("runs");
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("results");
+    }
+
+    @Override
+    public void onFinding(Finding finding) throws IOException {
+        String ruleId = finding.getRuleId() != null ? finding.getRuleId() : UNKNOWN_RULE;
+        String level = level(finding.getSeverity());
+
+        generator.writeStartObject();
+        generator.writeStringField("ruleId", ruleId);
+        generator.writeNumberField("ruleIndex", ruleIndex(ruleId, finding, level));
+        generator.writeStringField("level", level);
+        generator.writeObjectFieldStart("message");
+        generator.writeStringField("text", finding.getTitle() != null ? finding.getTitle() : "Security Issue");
+        generator.writeEndObject();
+
+        if (finding.getFilePath() != null) {
+            generator.writeArrayFieldStart("locations");
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("physicalLocation");
+            generator.writeObjectFieldStart("artifactLocation");
+            generator.writeStringField("uri", finding.getFilePath());
+            generator.writeNumberField("index", artifactIndex(finding.getFilePath()));
+            generator.writeEndObject();
+            if (finding.getLineNumber() > 0) {
+                generator.writeObjectFieldStart("region");
+                generator.writeNumberField("startLine", finding.getLineNumber());
+                if (finding.getColumnNumber() > 0) {
+                    generator.writeNumberField("startColumn", finding.getColumnNumber());
+                }
+                if (finding.getCodeSnippet() != null) {
+                    generator.writeObjectFieldStart("snippet");
+                    generator.writeStringField("text", finding.getCodeSnippet());
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndArray();
+        }
+
+        generator.writeObjectFieldStart("partialFingerprints");
+        generator.writeStringField(FINGERPRINT_KEY, FindingFingerprint.toHex(FindingFingerprint.of(finding)));
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("properties");
+        if (finding.getTool() != null) {
+            generator.writeStringField("tool", finding.getTool());
+        }
+        generator.writeNumberField("confidence", finding.getConfidence());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void onEnd() throws IOException {
+        generator.writeEndArray();
+
+        generator.writeObjectFieldStart("tool");
+        generator.writeObjectFieldStart("driver");
+        generator.writeStringField("name", "AgentScan");
+        generator.writeStringField("informationUri", "https://agentscan.dev");
+        generator.writeArrayFieldStart("rules");
+        for (Rule rule : rules) {
+            rule.write(generator);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart("artifacts");
+        for (String uri : artifacts) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("location");
+            generator.writeStringField("uri", uri);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    private int ruleIndex(String ruleId, Finding finding, String level) {
+        Integer index = ruleIndexes.get(ruleId);
+        if (index == null) {
+            index = rules.size();
+            ruleIndexes.put(ruleId, index);
+            // The first finding of a rule describes it
+            rules.add(new Rule(ruleId, finding.getTitle(), finding.getCategory(), level,
+                securitySeverity(finding.getSeverity())));
+        }
+        return index;
+    }
+
+    private int artifactIndex(String uri) {
+        Integer index = artifactIndexes.get(uri);
+        if (index == null) {
+            index = artifacts.size();
+            artifactIndexes.put(uri, index);
+            artifacts.add(uri);
+        }
+        return index;
+    }
+
+    private static String level(Severity severity) {
+        switch (severity) {
+            case CRITICAL:
+            case HIGH:
+                return "error";
+            case MEDIUM:
+                return "warning";
+            default:
+                return "note";
+        }
+    }
+
+    /**
+     * Returns the score GitHub code scanning uses to bucket alerts by severity.
+     */
+    private static String securitySeverity(Severity severity) {
+        switch (severity) {
+            case CRITICAL:
+                return "9.5";
+            case HIGH:
+                return "8.0";
+            case MEDIUM:
+                return "5.5";
+            case LOW:
+                return "3.0";
+            default:
+                return "0.0";
+        }
+    }
+
+    /**
+     * An entry of the {@code tool.driver.rules} dictionary.
+     */
+    private static final class Rule {
+        private final String id;
+        private final String description;
+        private final String category;
+        private final String level;
+        private final String securitySeverity;
+
+        Rule(String id, String description, String category, String level, String securitySeverity) {
+            this.id = id;
+            this.description = description;
+            this.category = category;
+            this.level = level;
+            this.securitySeverity = securitySeverity;
+        }
+
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("id", id);
+            if (description != null) {
+                generator.writeObjectFieldStart("shortDescription");
+                generator.writeStringField("text", description);
+                generator.writeEndObject();
+            }
+            generator.writeObjectFieldStart("defaultConfiguration");
+            generator.writeStringField("level", level);
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("properties");
+            generator.writeArrayFieldStart("tags");
+            generator.writeString("security");
+            if (category != null) {
+                generator.writeString(category);
+            }
+            generator.writeEndArray();
+            generator.writeStringField("security-severity", securitySeverity);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package dev.agentscan.jenkins;
+
+import hudson.model.Job;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller-wide admission control that limits how many scans each API runs at once.
+ *
+ * <p>A scan takes a slot before it is submitted and keeps it until its results are read
+ * or it ends otherwise. Scans beyond the limit queue per {@link ScanPriority} and group,
+ * the job's top-level folder, so one team's burst of builds cannot take every slot. A free
+ * slot goes to the highest priority, and groups of equal priority take turns. A queued
+ * scan moves up one class every {@value #AGING_MINUTES} minutes, so pull requests still
+ * get through while default branches keep the API busy.</p>
+ */
+final class ScanAdmissionScheduler {
+
+    private static final int AGING_MINUTES = 5;
+    private static final long AGING_MILLIS = TimeUnit.MINUTES.toMillis(AGING_MINUTES);
+    private static final ScanPriority[] PRIORITIES = ScanPriority.values();
+
+    private static final ScanAdmissionScheduler INSTANCE = new ScanAdmissionScheduler();
+
+    private final Map<String, Api> apis = new HashMap<>();
+
+    static ScanAdmissionScheduler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the group a job's scans share slots in: its top-level folder, or the job itself.
+     */
+    static String groupOf(Job<?, ?> job) {
+        String fullName = job.getFullName();
+        int slash = fullName.indexOf('/');
+        return slash < 0 ? fullName : fullName.substring(0, slash);
+    }
+
+    /**
+     * Requests a slot to run a scan on {@code apiUrl}. The ticket must be
+     * {@linkplain Ticket#release() released} when the scan ends, whether or not it was granted.
+     */
+    Ticket request(String apiUrl, String group, ScanPriority priority) {
+        Ticket ticket = new Ticket(this, AgentScanHttpClients.apiKey(apiUrl), group, priority);
+        List<Ticket> granted;
+        synchronized (this) {
+            Api api = apis.computeIfAbsent(ticket.apiUrl, key -> new Api());
+            ticket.queuedAhead = api.queued;
+            api.enqueue(ticket);
+            granted = grant(api);
+        }
+        complete(granted);
+        return ticket;
+    }
+
+    private void release(Ticket ticket, boolean onlyIfQueued) {
+        List<Ticket> granted;
+        synchronized (this) {
+            if (ticket.state == Ticket.RELEASED || (onlyIfQueued && ticket.state != Ticket.QUEUED)) {
+                return;
+            }
+            Api api = apis.get(ticket.apiUrl);
+            if (ticket.state == Ticket.QUEUED) {
+                api.remove(ticket);
+            } else {
+                api.running--;
+            }
+            ticket.state = Ticket.RELEASED;
+            granted = grant(api);
+            if (api.running == 0 && api.queued == 0) {
+                apis.remove(ticket.apiUrl);
+            }
+        }
+        // Wakes up a caller still waiting for this ticket
+        ticket.granted.cancel(false);
+        complete(granted);
+    }
+
+    /**
+     * Hands out free slots; the limit is read each time, so a changed setting applies as slots free up.
+     */
+    private List<Ticket> grant(Api api) {
+        int limit = AgentScanGlobalConfiguration.get().getMaxConcurrentScansPerApi();
+        List<Ticket> granted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        while (api.queued > 0 && api.running < limit) {
+            Ticket ticket = api.next(now);
+            ticket.state = Ticket.GRANTED;
+            api.running++;
+            granted.add(ticket);
+        }
+        return granted;
+    }
+
+    private static void complete(List<Ticket> granted) {
+        // Outside the lock; callers continue on their own threads
+        for (Ticket ticket : granted) {
+            ticket.granted.complete(ticket);
+        }
+    }
+
+    private static final class Api {
+        int running;
+        int queued;
+        /** Queues per priority and group, in the order in which the groups take turns. */
+        final LinkedHashMap<String, ArrayDeque<Ticket>> queues = new LinkedHashMap<>();
+
+        void enqueue(Ticket ticket) {
+            queues.computeIfAbsent(ticket.queueKey(), key -> new ArrayDeque<>()).add(ticket);
+            queued++;
+        }
+
+        void remove(Ticket ticket) {
+            ArrayDeque<Ticket> queue = queues.get(ticket.queueKey());
+            queue.remove(ticket);
+            if (queue.isEmpty()) {
+                queues.remove(ticket.queueKey());
+            }
+            queued--;
+        }
+
+        /**
+         * Takes the head of the queue with the best aged class; among equals, the group
+         * that was served least recently. That group then goes to the back.
+         */
+        Ticket next(long now) {
+            String nextKey = null;
+            long nextRank = Long.MAX_VALUE;
+            for (Map.Entry<String, ArrayDeque<Ticket>> entry : queues.entrySet()) {
+                Ticket head = entry.getValue().peek();
+                long rank = head.priority.ordinal() - (now - head.enqueuedAt) / AGING_MILLIS;
+                if (rank < nextRank) {
+                    nextKey = entry.getKey();
+                    nextRank = rank;
+                }
+            }
+            ArrayDeque<Ticket> queue = queues.remove(nextKey);
+            Ticket ticket = queue.poll();
+            if (!queue.isEmpty()) {
+                queues.put(nextKey, queue);
+            }
+            queued--;
+            ticket.grantedPriority = PRIORITIES[(int) Math.max(0, nextRank)];
+            return ticket;
+        }
+    }
+
+    /**
+     * A scan's place in the queue, and then its slot.
+     */
+    static final class Ticket {
+
+        static final int QUEUED = 0;
+        static final int GRANTED = 1;
+        static final int RELEASED = 2;
+
+        private final ScanAdmissionScheduler scheduler;
+        private final String apiUrl;
+        private final String group;
+        private final ScanPriority priority;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final CompletableFuture<Ticket> granted = new CompletableFuture<>();
+        /** Guarded by the scheduler. */
+        private int state = QUEUED;
+        private int queuedAhead;
+        private volatile ScanPriority grantedPriority;
+
+        private Ticket(ScanAdmissionScheduler scheduler, String apiUrl, String group, ScanPriority priority) {
+            this.scheduler = scheduler;
+            this.apiUrl = apiUrl;
+            this.group = group;
+            this.priority = priority;
+        }
+
+        private String queueKey() {
+            return priority.name() + '\n' + group;
+        }
+
+        boolean isGranted() {
+            return granted.isDone() && !granted.isCancelled();
+        }
+
+        /**
+         * Returns a future that completes when the slot is granted and is cancelled if the
+         * ticket is released first.
+         */
+        CompletableFuture<Ticket> granted() {
+            return granted;
+        }
+
+        /**
+         * Returns the number of scans that were queued for the API when this ticket was requested.
+         */
+        int getQueuedAhead() {
+            return queuedAhead;
+        }
+
+        /**
+         * Returns the priority field for the scan request: the class the scan was admitted in,
+         * which is higher than its own after waiting long.
+         */
+        int getApiPriority() {
+            ScanPriority admitted = grantedPriority;
+            return (admitted != null ? admitted : priority).getApiPriority();
+        }
+
+        /**
+         * Leaves the queue if the slot was not granted yet.
+         */
+        void cancel() {
+            scheduler.release(this, true);
+        }
+
+        /**
+         * Frees the slot or leaves the queue. Releasing again has no effect.
+         */
+        void release() {
+            scheduler.release(this, false);
+        }
+    }
+}
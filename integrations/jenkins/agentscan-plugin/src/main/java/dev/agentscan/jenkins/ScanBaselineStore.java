@@ -0,0 +1,167 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.Util;
+import hudson.model.Job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Remembers, per branch of a job, the last successfully scanned commit and the findings
+ * reported for it.
+ *
+ * <p>Each branch has one gzip-compressed file under the job's root directory in the
+ * {@code agentscan-results.json} format, with the commit SHA as its first field. Files are
+ * replaced atomically, so a concurrent build sees either the old or the new baseline.</p>
+ *
+ * <p>An incremental scan pins the baseline it was diffed against, since a newer build of the
+ * branch may replace it before the scan's results are merged. Pins are hard links where the
+ * file system allows, and are deleted once the results were read or, for scans that never
+ * got that far, after {@value #PIN_MAX_AGE_DAYS} days.</p>
+ */
+final class ScanBaselineStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String COMMIT_FIELD = "commit_sha";
+    private static final String PIN_PREFIX = "pinned-";
+    private static final int PIN_MAX_AGE_DAYS = 7;
+
+    private final File directory;
+
+    ScanBaselineStore(File directory) {
+        this.directory = directory;
+    }
+
+    static ScanBaselineStore forJob(Job<?, ?> job) {
+        return new ScanBaselineStore(new File(job.getRootDir(), "agentscan-baselines"));
+    }
+
+    /**
+     * Returns the last scanned commit of the branch, or {@code null} if there is no usable baseline.
+     */
+    String getCommit(String branch) {
+        return readCommit(file(branch));
+    }
+
+    private static String readCommit(Path file) {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+             JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT
+                    && parser.nextToken() == JsonToken.FIELD_NAME
+                    && COMMIT_FIELD.equals(parser.getCurrentName())
+                    && parser.nextToken() == JsonToken.VALUE_STRING) {
+                return parser.getText();
+            }
+            return null;
+        } catch (IOException e) {
+            // Missing or unreadable; the caller falls back to a full scan
+            return null;
+        }
+    }
+
+    /**
+     * Pins the branch's baseline for a scan diffed against {@code commit}.
+     *
+     * @return the name of the pin, or {@code null} if the baseline is no longer for that commit
+     */
+    String pin(String branch, String commit) throws IOException {
+        Path pinned = directory.toPath().resolve(PIN_PREFIX + UUID.randomUUID() + ".json.gz");
+        try {
+            Files.createLink(pinned, file(branch));
+        } catch (UnsupportedOperationException | IOException e) {
+            try {
+                Files.copy(file(branch), pinned);
+            } catch (NoSuchFileException deleted) {
+                return null;
+            }
+        }
+        // Ages from now, not from when the baseline was saved
+        Files.setLastModifiedTime(pinned, FileTime.fromMillis(System.currentTimeMillis()));
+        // The baseline may have been replaced since the caller read its commit
+        if (!commit.equals(readCommit(pinned))) {
+            Files.delete(pinned);
+            return null;
+        }
+        return pinned.getFileName().toString();
+    }
+
+    /**
+     * Opens a pinned baseline for reading with {@link ScanResultsParser}.
+     *
+     * @throws IOException if the pin is missing or not for {@code commit}
+     */
+    InputStream openPinned(String pin, String commit) throws IOException {
+        Path pinned = pinFile(pin);
+        String pinnedCommit = readCommit(pinned);
+        if (!commit.equals(pinnedCommit)) {
+            throw new IOException("Scan baseline " + pin + " is for commit " + pinnedCommit + ", not " + commit);
+        }
+        return new GZIPInputStream(Files.newInputStream(pinned));
+    }
+
+    void unpin(String pin) throws IOException {
+        Files.deleteIfExists(pinFile(pin));
+    }
+
+    private Path pinFile(String pin) throws IOException {
+        if (!pin.startsWith(PIN_PREFIX) || pin.indexOf('/') >= 0 || pin.indexOf('\\') >= 0) {
+            throw new IOException("Invalid scan baseline pin: " + pin);
+        }
+        return directory.toPath().resolve(pin);
+    }
+
+    void save(String branch, String commitSha, List<Finding> findings) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Path temp = Files.createTempFile(directory.toPath(), "baseline", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp));
+                 JsonResultsWriter writer = new JsonResultsWriter(MAPPER, out)) {
+                writer.onMetadata(COMMIT_FIELD, commitSha);
+                writer.onFindingsStart();
+                for (Finding finding : findings) {
+                    writer.onFinding(finding);
+                }
+                writer.onFindingsEnd();
+                writer.onEnd();
+            }
+            Files.move(temp, file(branch), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // No-op once the file has been moved into place
+            Files.deleteIfExists(temp);
+        }
+        deleteStalePins();
+    }
+
+    private void deleteStalePins() throws IOException {
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(PIN_MAX_AGE_DAYS);
+        try (Stream<Path> files = Files.list(directory.toPath())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().startsWith(PIN_PREFIX)
+                        && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path file(String branch) {
+        // Branch names may contain slashes and other characters that are not valid in file names
+        return new File(directory, Util.getDigestOf(branch) + ".json.gz").toPath();
+    }
+}
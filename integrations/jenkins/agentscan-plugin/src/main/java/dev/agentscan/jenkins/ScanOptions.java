@@ -1,9 +1,13 @@
 package dev.agentscan.jenkins;
 
+import java.io.Serializable;
+
 /**
  * Configuration options for AgentScan security scanning.
  */
-public class ScanOptions {
+public class ScanOptions implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
     
     private String failOnSeverity = "high";
     private String excludePaths = "";
@@ -12,6 +16,9 @@ public class ScanOptions {
     private boolean uploadSarif = true;
     private boolean generateReport = true;
     private int timeoutMinutes = 30;
+    private boolean incrementalScan = false;
+    private String qualityGate = "";
+    private boolean failFast = false;
     
     public String getFailOnSeverity() {
         return failOnSeverity;
@@ -68,4 +75,49 @@ public class ScanOptions {
     public void setTimeoutMinutes(int timeoutMinutes) {
         this.timeoutMinutes = timeoutMinutes;
     }
-}
\ No newline at end of file
+    
+    public boolean isIncrementalScan() {
+        return incrementalScan;
+    }
+    
+    public void setIncrementalScan(boolean incrementalScan) {
+        this.incrementalScan = incrementalScan;
+    }
+    
+    public String getQualityGate() {
+        return qualityGate;
+    }
+    
+    public void setQualityGate(String qualityGate) {
+        this.qualityGate = qualityGate;
+    }
+    
+    public boolean isFailFast() {
+        return failFast;
+    }
+    
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+    
+    /**
+     * Returns the {@link QualityGate} policy in effect: the quality gate if one is set,
+     * otherwise the one equivalent to the fail-on severity.
+     *
+     * @throws IllegalArgumentException if the fail-on severity is not a known value
+     */
+    String getQualityGatePolicy() {
+        if (qualityGate != null && !qualityGate.trim().isEmpty()) {
+            return qualityGate;
+        }
+        return QualityGate.forFailOnSeverity(failOnSeverity);
+    }
+    
+    /**
+     * Returns a string that differs whenever two option sets could produce different
+     * findings for the same commit. Reporting and build-gate options are not part of it.
+     */
+    String resultFingerprint() {
+        return excludePaths + '\0' + includePaths;
+    }
+}
@@ -0,0 +1,58 @@
+package dev.agentscan.jenkins;
+
+import java.util.regex.Pattern;
+
+/**
+ * Class of the branch a scan is for, which decides its place in the
+ * {@link ScanAdmissionScheduler} queue and the priority sent to the API.
+ */
+enum ScanPriority {
+
+    /** A default branch such as {@code main}, whose results gate releases. */
+    DEFAULT_BRANCH(8),
+
+    /** Any other branch. */
+    BRANCH(5),
+
+    /** A pull or merge request. */
+    PULL_REQUEST(3);
+
+    private static final Pattern PULL_REQUEST_BRANCH =
+        Pattern.compile("(?:PR|MR)-\\d+|(?:refs/)?(?:pull|merge-requests)/\\d+(?:/.*)?");
+    private static final Pattern SEPARATOR = Pattern.compile("[,\\s]+");
+
+    private final int apiPriority;
+
+    ScanPriority(int apiPriority) {
+        this.apiPriority = apiPriority;
+    }
+
+    /**
+     * Returns the priority field of the scan request.
+     */
+    int getApiPriority() {
+        return apiPriority;
+    }
+
+    /**
+     * Classifies a branch; multibranch pull request jobs are named like {@code PR-123}.
+     *
+     * @param defaultBranches names of the default branches, separated by commas or spaces
+     */
+    static ScanPriority of(String branch, String defaultBranches) {
+        if (branch == null) {
+            return BRANCH;
+        }
+        if (PULL_REQUEST_BRANCH.matcher(branch).matches()) {
+            return PULL_REQUEST;
+        }
+        if (defaultBranches != null) {
+            for (String name : SEPARATOR.split(defaultBranches.trim())) {
+                if (name.equals(branch)) {
+                    return DEFAULT_BRANCH;
+                }
+            }
+        }
+        return BRANCH;
+    }
+}
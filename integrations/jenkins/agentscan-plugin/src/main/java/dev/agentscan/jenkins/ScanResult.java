@@ -1,7 +1,7 @@
 package dev.agentscan.jenkins;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents the result of an AgentScan security scan.
@@ -10,22 +10,58 @@ public class ScanResult {
     
     private final boolean success;
     private final String errorMessage;
-    private final Map<String, Object> resultsData;
+    private final List<Finding> findings;
     private final ScanSummary summary;
+    private final List<String> qualityGateViolations;
+    private final FindingDiff diff;
+    private final String supersededBy;
     
-    private ScanResult(boolean success, String errorMessage, Map<String, Object> resultsData) {
+    private ScanResult(boolean success, String errorMessage, List<Finding> findings, ScanSummary summary,
+                       List<String> qualityGateViolations, FindingDiff diff, String supersededBy) {
         this.success = success;
         this.errorMessage = errorMessage;
-        this.resultsData = resultsData;
-        this.summary = success ? parseSummary(resultsData) : null;
+        this.findings = findings;
+        this.summary = summary;
+        this.qualityGateViolations = qualityGateViolations;
+        this.diff = diff;
+        this.supersededBy = supersededBy;
     }
     
-    public static ScanResult success(Map<String, Object> resultsData) {
-        return new ScanResult(true, null, resultsData);
+    /**
+     * Creates a successful result whose summary was already computed while the findings were read.
+     */
+    public static ScanResult success(List<Finding> findings, ScanSummary summary) {
+        return new ScanResult(true, null, Collections.unmodifiableList(findings), summary,
+            Collections.<String>emptyList(), null, null);
     }
     
     public static ScanResult failure(String errorMessage) {
-        return new ScanResult(false, errorMessage, null);
+        return new ScanResult(false, errorMessage, Collections.<Finding>emptyList(), null,
+            Collections.<String>emptyList(), null, null);
+    }
+    
+    /**
+     * Creates the result of a scan that was cancelled because a newer commit of its branch is scanned.
+     */
+    static ScanResult superseded(String message, String newerCommit) {
+        return new ScanResult(false, message, Collections.<Finding>emptyList(), null,
+            Collections.<String>emptyList(), null, newerCommit);
+    }
+    
+    /**
+     * Returns this result as reported for an older commit whose scan it superseded.
+     */
+    ScanResult withSupersededBy(String newerCommit) {
+        return new ScanResult(success, errorMessage, findings, summary, qualityGateViolations, diff, newerCommit);
+    }
+    
+    /**
+     * Returns this result as evaluated for one build: compared with the build's previous
+     * findings and with the quality gate conditions it violates.
+     */
+    ScanResult withEvaluation(FindingDiff diff, List<String> violations) {
+        return new ScanResult(success, errorMessage, findings, summary, Collections.unmodifiableList(violations),
+            diff, supersededBy);
     }
     
     public boolean isSuccess() {
@@ -36,72 +72,34 @@ public class ScanResult {
         return errorMessage;
     }
     
-    public Map<String, Object> getResultsData() {
-        return resultsData;
+    public List<Finding> getFindings() {
+        return findings;
     }
     
     public ScanSummary getSummary() {
         return summary;
     }
     
-    @SuppressWarnings("unchecked")
-    private ScanSummary parseSummary(Map<String, Object> data) {
-        if (data == null) {
-            return new ScanSummary(0, 0, 0, 0);
-        }
-        
-        Map<String, Object> summary = (Map<String, Object>) data.get("summary");
-        if (summary == null) {
-            // Try to count findings directly
-            List<Map<String, Object>> findings = (List<Map<String, Object>>) data.get("findings");
-            if (findings != null) {
-                return countFindingsBySeverity(findings);
-            }
-            return new ScanSummary(0, 0, 0, 0);
-        }
-        
-        int totalFindings = getIntValue(summary, "total_findings");
-        
-        Map<String, Object> bySeverity = (Map<String, Object>) summary.get("by_severity");
-        if (bySeverity != null) {
-            int high = getIntValue(bySeverity, "high");
-            int medium = getIntValue(bySeverity, "medium");
-            int low = getIntValue(bySeverity, "low");
-            return new ScanSummary(totalFindings, high, medium, low);
-        }
-        
-        return new ScanSummary(totalFindings, 0, 0, 0);
+    /**
+     * Returns the quality gate conditions that hold for this result; empty if the gate passed.
+     */
+    public List<String> getQualityGateViolations() {
+        return qualityGateViolations;
     }
     
-    @SuppressWarnings("unchecked")
-    private ScanSummary countFindingsBySeverity(List<Map<String, Object>> findings) {
-        int high = 0, medium = 0, low = 0;
-        
-        for (Map<String, Object> finding : findings) {
-            String severity = (String) finding.get("severity");
-            if ("high".equals(severity)) {
-                high++;
-            } else if ("medium".equals(severity)) {
-                medium++;
-            } else if ("low".equals(severity)) {
-                low++;
-            }
-        }
-        
-        return new ScanSummary(findings.size(), high, medium, low);
+    /**
+     * Returns the comparison with the previous build, or {@code null} if this result was
+     * not evaluated for a build.
+     */
+    FindingDiff getDiff() {
+        return diff;
     }
     
-    private int getIntValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value instanceof Integer) {
-            return (Integer) value;
-        } else if (value instanceof String) {
-            try {
-                return Integer.parseInt((String) value);
-            } catch (NumberFormatException e) {
-                return 0;
-            }
-        }
-        return 0;
+    /**
+     * Returns the newer commit whose scan replaced this build's own, or {@code null} if the
+     * build's commit was scanned. Superseded results are failed when they carry no findings.
+     */
+    public String getSupersededBy() {
+        return supersededBy;
     }
-}
\ No newline at end of file
+}
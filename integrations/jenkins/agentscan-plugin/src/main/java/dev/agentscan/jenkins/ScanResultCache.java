@@ -0,0 +1,370 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Controller-wide cache of successful scan results, keyed by API, repository, commit and
+ * the options that affect the findings.
+ *
+ * <p>Recently used results are kept in memory up to a total number of findings; every
+ * entry is also written to {@code $JENKINS_HOME/agentscan-cache} so it survives eviction
+ * and restarts until its TTL expires. The directory is capped in size: a file's
+ * modification time is when the entry was created, its access time when it was last used,
+ * and the least recently used files are deleted first.</p>
+ *
+ * <p>Scans of the same key are de-duplicated: the first caller {@linkplain #claim claims}
+ * the key and runs the scan, later callers get a future for its result. Only successful
+ * results are shared; a failure makes the waiting callers claim again and scan themselves.</p>
+ */
+final class ScanResultCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ScanResultCache.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final File directory;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<String, CompletableFuture<ScanResult>> inFlight = new ConcurrentHashMap<>();
+    private long memoryFindings;
+    private final Object trimLock = new Object();
+
+    ScanResultCache(File directory) {
+        this.directory = directory;
+    }
+
+    static ScanResultCache get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the cache key for a scan, or {@code null} if the commit is not known well
+     * enough to be cached.
+     */
+    static String key(String apiUrl, GitMetadata git, ScanOptions options) {
+        if (git.getRepositoryUrl() == null || "unknown-repository".equals(git.getRepositoryUrl())
+                || git.getCommitSha() == null || "unknown-commit".equals(git.getCommitSha())) {
+            return null;
+        }
+        return Util.getDigestOf(AgentScanHttpClients.apiKey(apiUrl) + '\n' + git.getRepositoryUrl()
+            + '\n' + git.getCommitSha() + '\n' + options.resultFingerprint());
+    }
+
+    /**
+     * Claims a key for scanning.
+     *
+     * @return {@code null} if the caller now owns the scan and must finish with
+     *     {@link #complete} or {@link #abandon}; otherwise a future for the cached result or
+     *     for the identical scan already running. The future is cancelled if that scan is
+     *     abandoned, in which case the caller should claim again.
+     */
+    CompletableFuture<ScanResult> claim(String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        ScanResult cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<ScanResult> mine = new CompletableFuture<>();
+        CompletableFuture<ScanResult> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing;
+        }
+        // Another owner may have completed between the lookup and the claim
+        cached = lookup(key);
+        if (cached != null) {
+            inFlight.remove(key, mine);
+            mine.complete(cached);
+            return mine;
+        }
+        return null;
+    }
+
+    /**
+     * Publishes the result of an owned scan to waiting callers and caches it if successful.
+     * Findings of a newer commit that superseded the scan are not cached for this commit.
+     * A failure, which may be transient or specific to the owner's build, is not shared:
+     * the scan is {@linkplain #abandon abandoned} instead. Also accepts results for keys that
+     * are no longer claimed, e.g. after a restart.
+     */
+    void complete(String key, ScanResult result) {
+        if (!result.isSuccess()) {
+            abandon(key);
+            return;
+        }
+        if (result.getSupersededBy() == null && isEnabled()) {
+            put(key, result);
+        }
+        CompletableFuture<ScanResult> flight = inFlight.remove(key);
+        if (flight != null) {
+            flight.complete(result);
+        }
+    }
+
+    /**
+     * Releases an owned scan that did not produce a result, so a waiting caller can take over.
+     */
+    void abandon(String key) {
+        CompletableFuture<ScanResult> flight = inFlight.remove(key);
+        if (flight != null) {
+            flight.cancel(false);
+        }
+    }
+
+    private ScanResult lookup(String key) {
+        long ttl = ttlMillis();
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.createdAt < ttl) {
+                    touch(file(key));
+                    return entry.result;
+                }
+                remove(key);
+            }
+        }
+
+        File file = file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        long createdAt = file.lastModified();
+        if (System.currentTimeMillis() - createdAt >= ttl) {
+            file.delete();
+            return null;
+        }
+        try {
+            ScanResult result = read(file);
+            touch(file);
+            remember(key, new Entry(result, createdAt));
+            return result;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Discarding unreadable cache entry " + file, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void put(String key, ScanResult result) {
+        Entry entry = new Entry(result, System.currentTimeMillis());
+        remember(key, entry);
+        try {
+            write(file(key), result);
+            trim();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write AgentScan result cache entry", e);
+        }
+    }
+
+    /**
+     * Records a use of an entry for the size cap, without changing its creation time.
+     */
+    private static void touch(File file) {
+        try {
+            Files.getFileAttributeView(file.toPath(), BasicFileAttributeView.class)
+                .setTimes(null, FileTime.fromMillis(System.currentTimeMillis()), null);
+        } catch (IOException e) {
+            // Only makes the entry look older to the size cap
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the directory fits the size cap.
+     */
+    private void trim() throws IOException {
+        long limit = AgentScanGlobalConfiguration.get().getResultCacheMaxDiskMegabytes() * 1024L * 1024L;
+        synchronized (trimLock) {
+            File[] files = directory.listFiles((dir, name) -> name.endsWith(".json.gz"));
+            if (files == null) {
+                return;
+            }
+            List<Map.Entry<Path, BasicFileAttributes>> entries = new ArrayList<>(files.length);
+            long total = 0;
+            for (File file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(file.toPath(), attributes));
+                    total += attributes.size();
+                } catch (IOException e) {
+                    // Deleted meanwhile
+                }
+            }
+            if (total <= limit) {
+                return;
+            }
+            entries.sort(Comparator.comparing(entry -> entry.getValue().lastAccessTime()));
+            for (Iterator<Map.Entry<Path, BasicFileAttributes>> it = entries.iterator(); it.hasNext() && total > limit; ) {
+                Map.Entry<Path, BasicFileAttributes> entry = it.next();
+                if (Files.deleteIfExists(entry.getKey())) {
+                    total -= entry.getValue().size();
+                    remove(entry.getKey().getFileName().toString().replace(".json.gz", ""));
+                }
+            }
+        }
+    }
+
+    private synchronized void remember(String key, Entry entry) {
+        remove(key);
+        memory.put(key, entry);
+        memoryFindings += entry.weight();
+
+        // Least recently used entries go first; they remain available on disk
+        long limit = AgentScanGlobalConfiguration.get().getResultCacheMaxFindings();
+        Iterator<Entry> eldest = memory.values().iterator();
+        while (memoryFindings > limit && eldest.hasNext()) {
+            memoryFindings -= eldest.next().weight();
+            eldest.remove();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Entry removed = memory.remove(key);
+        if (removed != null) {
+            memoryFindings -= removed.weight();
+        }
+    }
+
+    private void write(File file, ScanResult result) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Path temp = Files.createTempFile(directory.toPath(), "entry", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp));
+                 JsonResultsWriter writer = new JsonResultsWriter(MAPPER, out)) {
+                writer.onSummary(toServerSummary(result.getSummary()));
+                writer.onFindingsStart();
+                for (Finding finding : result.getFindings()) {
+                    writer.onFinding(finding);
+                }
+                writer.onFindingsEnd();
+                writer.onEnd();
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // No-op once the file has been moved into place
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static ScanResult read(File file) throws IOException {
+        SummaryCounter summaryCounter = new SummaryCounter();
+        ScanResultCollector collector = new ScanResultCollector();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            ScanResultsParser.parse(MAPPER, in, Arrays.asList(summaryCounter, collector));
+        }
+        return ScanResult.success(collector.getFindings(), summaryCounter.getSummary());
+    }
+
+    /**
+     * Stores the summary in the API's format so it is restored exactly by {@link SummaryCounter}.
+     */
+    private static Map<String, Object> toServerSummary(ScanSummary summary) {
+        Map<String, Object> bySeverity = new LinkedHashMap<>();
+        for (Severity severity : Severity.values()) {
+            bySeverity.put(severity.getLabel(), summary.getSeverityCount(severity));
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("total_findings", summary.getTotalFindings());
+        map.put("by_severity", bySeverity);
+        return map;
+    }
+
+    private File file(String key) {
+        return new File(directory, key + ".json.gz");
+    }
+
+    private void sweep() {
+        long ttl = ttlMillis();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json.gz"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (System.currentTimeMillis() - file.lastModified() >= ttl) {
+                file.delete();
+            }
+        }
+        try {
+            trim();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to trim the AgentScan result cache", e);
+        }
+    }
+
+    private static boolean isEnabled() {
+        return AgentScanGlobalConfiguration.get().isResultCacheEnabled();
+    }
+
+    private static long ttlMillis() {
+        return TimeUnit.MINUTES.toMillis(AgentScanGlobalConfiguration.get().getResultCacheTtlMinutes());
+    }
+
+    private static final class Entry {
+        final ScanResult result;
+        final long createdAt;
+
+        Entry(ScanResult result, long createdAt) {
+            this.result = result;
+            this.createdAt = createdAt;
+        }
+
+        long weight() {
+            return result.getFindings().size() + 1;
+        }
+    }
+
+    private static final class Holder {
+        static final ScanResultCache INSTANCE = new ScanResultCache(new File(Jenkins.get().getRootDir(), "agentscan-cache"));
+    }
+
+    /**
+     * Deletes expired entries from disk and applies the size cap.
+     */
+    @Extension
+    public static final class ExpiredEntrySweeper extends AsyncPeriodicWork {
+
+        public ExpiredEntrySweeper() {
+            super("AgentScan result cache sweeper");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return TimeUnit.HOURS.toMillis(1);
+        }
+
+        @Override
+        protected void execute(TaskListener listener) {
+            get().sweep();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dev.agentscan.jenkins;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the parsed findings for the steps that run after the download, such as the HTML
+ * report and the fail-on-severity gate.
+ */
+class ScanResultCollector implements FindingHandler {
+
+    private final ArrayList<Finding> findings = new ArrayList<>();
+
+    @Override
+    public void onFinding(Finding finding) {
+        findings.add(finding);
+    }
+
+    @Override
+    public void onEnd() {
+        findings.trimToSize();
+    }
+
+    List<Finding> getFindings() {
+        return findings;
+    }
+}
@@ -0,0 +1,251 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a scan results document into {@link FindingHandler}s.
+ *
+ * <p>The response is read token by token and each finding is decoded straight into a
+ * {@link Finding}, so no intermediate map is built and only one finding is in flight at
+ * a time.</p>
+ */
+final class ScanResultsParser {
+
+    /**
+     * Matches {@code CWE-79}, {@code 79} and MITRE links such as
+     * {@code https://cwe.mitre.org/data/definitions/79.html}.
+     */
+    private static final Pattern CWE = Pattern.compile(
+        "^(?:CWE-?|.*cwe\\.mitre\\.org/data/definitions/)?(\\d{1,6})(?:\\.html)?$", Pattern.CASE_INSENSITIVE);
+
+    private ScanResultsParser() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static void parse(ObjectMapper objectMapper, InputStream in, List<? extends FindingHandler> handlers)
+            throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Scan results must be a JSON object");
+            }
+            StringPool strings = new StringPool();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if ("findings".equals(name) && value == JsonToken.START_ARRAY) {
+                    for (FindingHandler handler : handlers) {
+                        handler.onFindingsStart();
+                    }
+                    JsonToken element;
+                    while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (element == JsonToken.VALUE_NULL) {
+                            continue;
+                        }
+                        if (element != JsonToken.START_OBJECT) {
+                            // Stopping here would pass a truncated list of findings as complete
+                            throw new IOException("Unexpected " + describe(element)
+                                + " in the findings of the scan results");
+                        }
+                        Finding finding = readFinding(parser, strings);
+                        for (FindingHandler handler : handlers) {
+                            handler.onFinding(finding);
+                        }
+                    }
+                    for (FindingHandler handler : handlers) {
+                        handler.onFindingsEnd();
+                    }
+                } else if ("summary".equals(name) && value == JsonToken.START_OBJECT) {
+                    Map<String, Object> summary = parser.readValueAs(Map.class);
+                    for (FindingHandler handler : handlers) {
+                        handler.onSummary(summary);
+                    }
+                } else {
+                    Object metadata = parser.readValueAs(Object.class);
+                    for (FindingHandler handler : handlers) {
+                        handler.onMetadata(name, metadata);
+                    }
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new IOException("Unexpected " + describe(parser.currentToken()) + " in the scan results");
+            }
+
+            for (FindingHandler handler : handlers) {
+                handler.onEnd();
+            }
+        }
+    }
+    
+    private static String describe(JsonToken token) {
+        return token == null ? "end of input" : "token " + token;
+    }
+    
+    /**
+     * Decodes one finding object directly from the token stream, with the parser
+     * positioned on its {@code START_OBJECT}. Unknown fields, which are rare, are kept
+     * as extra fields with pooled names.
+     */
+    private static Finding readFinding(JsonParser parser, StringPool strings) throws IOException {
+        String id = null;
+        String tool = null;
+        String ruleId = null;
+        String severity = null;
+        String category = null;
+        String cwe = null;
+        String title = null;
+        String description = null;
+        String filePath = null;
+        int lineNumber = 0;
+        int columnNumber = 0;
+        String codeSnippet = null;
+        double confidence = 0;
+        Map<String, Object> extraFields = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = readString(parser);
+                    break;
+                case "tool":
+                    tool = strings.intern(readString(parser));
+                    break;
+                case "rule_id":
+                    ruleId = strings.intern(readString(parser));
+                    break;
+                case "severity":
+                    severity = readString(parser);
+                    break;
+                case "category":
+                    category = strings.intern(readString(parser));
+                    break;
+                case "cwe":
+                    cwe = readCwe(parser, strings, cwe);
+                    break;
+                case "references":
+                    Object references = parser.readValueAs(Object.class);
+                    // Agents without a cwe field link the weakness among the references
+                    if (cwe == null) {
+                        cwe = strings.intern(findCwe(references));
+                    }
+                    extraFields = putExtra(extraFields, field, references);
+                    break;
+                case "title":
+                    title = strings.intern(readString(parser));
+                    break;
+                case "description":
+                    description = readString(parser);
+                    break;
+                case "file_path":
+                    filePath = strings.intern(readString(parser));
+                    break;
+                case "line_number":
+                    lineNumber = readInt(parser);
+                    break;
+                case "column_number":
+                    columnNumber = readInt(parser);
+                    break;
+                case "code_snippet":
+                    codeSnippet = readString(parser);
+                    break;
+                case "confidence":
+                    confidence = parser.currentToken().isNumeric() ? parser.getDoubleValue() : 0;
+                    break;
+                default:
+                    extraFields = putExtra(extraFields, strings.intern(field), parser.readValueAs(Object.class));
+                    break;
+            }
+        }
+
+        return new Finding(id, tool, ruleId, Severity.fromLabel(severity), category, cwe, title, description,
+            filePath, lineNumber, columnNumber, codeSnippet, confidence, extraFields);
+    }
+
+    private static Map<String, Object> putExtra(Map<String, Object> extraFields, String name, Object value) {
+        Map<String, Object> fields = extraFields != null ? extraFields : new LinkedHashMap<>(4);
+        fields.put(name, value);
+        return fields;
+    }
+
+    /**
+     * Returns the first CWE among already decoded references, or {@code null} if none.
+     */
+    private static String findCwe(Object references) {
+        if (references instanceof List) {
+            for (Object reference : (List<?>) references) {
+                String cwe = findCwe(reference);
+                if (cwe != null) {
+                    return cwe;
+                }
+            }
+            return null;
+        }
+        return references instanceof String || references instanceof Number ? toCwe(references.toString()) : null;
+    }
+
+    /**
+     * Reads the first CWE from a string, number or array value, normalized to {@code CWE-<id>}.
+     */
+    private static String readCwe(JsonParser parser, StringPool strings, String current) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            String cwe = current;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String value = parser.currentToken().isScalarValue() ? toCwe(parser.getText()) : null;
+                if (value == null) {
+                    parser.skipChildren();
+                } else if (cwe == null) {
+                    cwe = value;
+                }
+            }
+            return strings.intern(cwe);
+        }
+        String value = token.isScalarValue() && token != JsonToken.VALUE_NULL ? toCwe(parser.getText()) : null;
+        parser.skipChildren();
+        return value != null ? strings.intern(value) : current;
+    }
+
+    private static String toCwe(String text) {
+        Matcher matcher = CWE.matcher(text.trim());
+        return matcher.matches() ? "CWE-" + Integer.parseInt(matcher.group(1)) : null;
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        } else if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static int readInt(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.parseInt(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        parser.skipChildren();
+        return 0;
+    }
+}
@@ -0,0 +1,121 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Reads scan status events from {@code GET /api/v1/scans/{id}/events}.
+ *
+ * <p>The stream is a standard {@code text/event-stream}. Each event's {@code data} is a
+ * JSON object with the same fields as the status endpoint. The reader returns as soon
+ * as an event reports a terminal status.</p>
+ */
+final class ScanStatusStream {
+
+    /**
+     * Result of waiting on the stream.
+     */
+    enum Outcome {
+        /** A terminal status event was received. */
+        TERMINAL,
+        /** The server does not offer a status stream. */
+        UNSUPPORTED,
+        /** The stream ended or broke before a terminal status. */
+        INTERRUPTED
+    }
+
+    private final CloseableHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private Map<String, Object> lastEvent;
+
+    ScanStatusStream(CloseableHttpClient httpClient, ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the last status event read, which is the terminal one after {@link Outcome#TERMINAL}.
+     */
+    Map<String, Object> getLastEvent() {
+        return lastEvent;
+    }
+
+    Outcome await(HttpGet request, long deadline, StatusListener statusListener) throws IOException {
+        request.setHeader("Accept", "text/event-stream");
+        request.setHeader("Cache-Control", "no-cache");
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            ContentType contentType = entity == null ? null : ContentType.get(entity);
+            if (statusCode != 200 || contentType == null
+                    || !"text/event-stream".equalsIgnoreCase(contentType.getMimeType())) {
+                // Aborting closes the connection rather than draining an unexpected body
+                request.abort();
+                return statusCode == 200 || isUnsupportedStatus(statusCode) ? Outcome.UNSUPPORTED : Outcome.INTERRUPTED;
+            }
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8))) {
+                StringBuilder data = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        if (data.length() > 0 && dispatch(data.toString(), statusListener)) {
+                            request.abort();
+                            return Outcome.TERMINAL;
+                        }
+                        data.setLength(0);
+                    } else if (line.startsWith("data:")) {
+                        if (data.length() > 0) {
+                            data.append('\n');
+                        }
+                        data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+                    }
+                    // Comments (heartbeats), event names, ids and retry hints are ignored
+
+                    if (System.currentTimeMillis() >= deadline) {
+                        request.abort();
+                        return Outcome.INTERRUPTED;
+                    }
+                }
+            }
+            return Outcome.INTERRUPTED;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean dispatch(String data, StatusListener statusListener) throws IOException {
+        Map<String, Object> event = objectMapper.readValue(data, Map.class);
+        // Anything but a string status, such as a number or a nested object, carries no status
+        Object value = event == null ? null : event.get("status");
+        if (!(value instanceof String)) {
+            return false;
+        }
+        String status = (String) value;
+        lastEvent = event;
+        statusListener.onStatus(status);
+        return "completed".equals(status) || "failed".equals(status);
+    }
+
+    private static boolean isUnsupportedStatus(int statusCode) {
+        return statusCode == 404 || statusCode == 405 || statusCode == 406 || statusCode == 501;
+    }
+
+    /**
+     * Receives every status reported on the stream.
+     */
+    interface StatusListener {
+        void onStatus(String status);
+    }
+}
@@ -2,46 +2,110 @@ package dev.agentscan.jenkins;
 
 /**
  * Summary statistics for a security scan.
+ *
+ * <p>Besides the severity counts it holds histograms per tool, rule, top-level directory
+ * and CWE, filled while the findings are read and saved with the build. The per-file
+ * histogram is only kept while the build runs, as it grows with the size of the tree.</p>
  */
 public class ScanSummary {
-    
+
     private final int totalFindings;
-    private final int highSeverityCount;
-    private final int mediumSeverityCount;
-    private final int lowSeverityCount;
-    
+    private final int[] severityCounts;
+    private final FindingHistogram toolCounts;
+    private final FindingHistogram ruleCounts;
+    private final FindingHistogram directoryCounts;
+    private final FindingHistogram cweCounts;
+    private final transient FindingHistogram fileCounts;
+
     public ScanSummary(int totalFindings, int highSeverityCount, int mediumSeverityCount, int lowSeverityCount) {
+        this(totalFindings, new int[] {0, highSeverityCount, mediumSeverityCount, lowSeverityCount, 0},
+            new FindingHistogram(), new FindingHistogram(), new FindingHistogram(), new FindingHistogram(),
+            new FindingHistogram());
+    }
+
+    /**
+     * @param severityCounts counts indexed by {@link Severity#ordinal()}
+     */
+    ScanSummary(int totalFindings, int[] severityCounts, FindingHistogram toolCounts, FindingHistogram ruleCounts,
+                FindingHistogram directoryCounts, FindingHistogram cweCounts, FindingHistogram fileCounts) {
         this.totalFindings = totalFindings;
-        this.highSeverityCount = highSeverityCount;
-        this.mediumSeverityCount = mediumSeverityCount;
-        this.lowSeverityCount = lowSeverityCount;
+        this.severityCounts = severityCounts;
+        this.toolCounts = toolCounts;
+        this.ruleCounts = ruleCounts;
+        this.directoryCounts = directoryCounts;
+        this.cweCounts = cweCounts;
+        this.fileCounts = fileCounts;
     }
-    
+
     public int getTotalFindings() {
         return totalFindings;
     }
-    
+
+    public int getSeverityCount(Severity severity) {
+        return severityCounts[severity.ordinal()];
+    }
+
+    public int getCriticalSeverityCount() {
+        return getSeverityCount(Severity.CRITICAL);
+    }
+
     public int getHighSeverityCount() {
-        return highSeverityCount;
+        return getSeverityCount(Severity.HIGH);
     }
-    
+
     public int getMediumSeverityCount() {
-        return mediumSeverityCount;
+        return getSeverityCount(Severity.MEDIUM);
     }
-    
+
     public int getLowSeverityCount() {
-        return lowSeverityCount;
+        return getSeverityCount(Severity.LOW);
+    }
+
+    public int getInfoSeverityCount() {
+        return getSeverityCount(Severity.INFO);
     }
-    
+
+    /**
+     * Returns the number of findings per tool; findings without a tool count as {@code unknown}.
+     */
+    public FindingHistogram getToolCounts() {
+        return toolCounts;
+    }
+
+    public FindingHistogram getRuleCounts() {
+        return ruleCounts;
+    }
+
+    /**
+     * Returns the number of findings per top-level directory; files at the root count as {@code .}.
+     */
+    public FindingHistogram getDirectoryCounts() {
+        return directoryCounts;
+    }
+
+    /**
+     * Returns the number of findings per {@code CWE-<id>}; findings without a CWE are not counted.
+     */
+    public FindingHistogram getCweCounts() {
+        return cweCounts;
+    }
+
+    /**
+     * Returns the number of findings per file, or an empty histogram once the build was reloaded.
+     */
+    public FindingHistogram getFileCounts() {
+        return fileCounts != null ? fileCounts : new FindingHistogram();
+    }
+
     public boolean hasHighSeverityFindings() {
-        return highSeverityCount > 0;
+        return getCriticalSeverityCount() > 0 || getHighSeverityCount() > 0;
     }
-    
+
     public boolean hasMediumOrHighSeverityFindings() {
-        return highSeverityCount > 0 || mediumSeverityCount > 0;
+        return hasHighSeverityFindings() || getMediumSeverityCount() > 0;
     }
-    
+
     public boolean hasAnyFindings() {
         return totalFindings > 0;
     }
-}
\ No newline at end of file
+}
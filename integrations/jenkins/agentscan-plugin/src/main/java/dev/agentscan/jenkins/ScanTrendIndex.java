@@ -0,0 +1,269 @@
+package dev.agentscan.jenkins;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-job index of the counts of each scanned build, for trend charts.
+ *
+ * <p>The index is an append-only file under the job's root directory: a 16-byte header,
+ * then one {@value #RECORD_BYTES}-byte record per build with its number, timestamp, total,
+ * new and fixed findings, the count per severity and the counts of its
+ * {@value #TOOL_SLOTS} most frequent tools, names included, so each record stands alone.
+ * Reading the last 500 builds is one positional read of 125 KB; no build is loaded.</p>
+ *
+ * <p>Builds that finish out of order append out of order, and a rebuilt build may appear
+ * twice; readers keep the last record per build number. If the file is lost or damaged
+ * it is rebuilt from the {@link AgentScanSummaryAction}s in the build records.</p>
+ */
+final class ScanTrendIndex {
+
+    static final String FILE_NAME = "agentscan-trend.bin";
+
+    private static final Logger LOGGER = Logger.getLogger(ScanTrendIndex.class.getName());
+    private static final int MAGIC = 0x41535452;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 256;
+    private static final int SEVERITY_SLOTS = 8;
+    private static final int TOOLS_OFFSET = 64;
+    private static final int TOOL_SLOTS = 6;
+    private static final int TOOL_NAME_BYTES = 28;
+    /** Builds read back when the index has to be rebuilt. */
+    private static final int MAX_REBUILD_BUILDS = 500;
+    private static final Severity[] SEVERITIES = Severity.values();
+
+    /** Serializes appends and rebuilds per index file. */
+    private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private final Job<?, ?> job;
+    private final File file;
+
+    private ScanTrendIndex(Job<?, ?> job, File file) {
+        this.job = job;
+        this.file = file;
+    }
+
+    static ScanTrendIndex forJob(Job<?, ?> job) {
+        return new ScanTrendIndex(job, new File(job.getRootDir(), FILE_NAME));
+    }
+
+    boolean exists() {
+        return file.isFile();
+    }
+
+    /**
+     * Adds the counts of a finished build, first rebuilding the index if it is missing or damaged.
+     */
+    void append(Run<?, ?> run, AgentScanSummaryAction summary) throws IOException {
+        synchronized (lock()) {
+            if (!isValid()) {
+                // The rebuild reads the summary already attached to this run
+                rebuild();
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer record = encode(run, summary);
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the points of the latest {@code limit} builds, oldest first.
+     */
+    List<ScanTrendPoint> read(int limit) throws IOException {
+        if (!isValid()) {
+            synchronized (lock()) {
+                if (!isValid()) {
+                    rebuild();
+                }
+            }
+        }
+        ByteBuffer records;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long count = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+            // A few extra records make up for duplicates of rebuilt builds
+            long first = Math.max(0, count - limit - 16);
+            records = ByteBuffer.allocate((int) (count - first) * RECORD_BYTES);
+            long position = HEADER_BYTES + first * RECORD_BYTES;
+            while (records.hasRemaining() && channel.read(records, position + records.position()) >= 0) {
+                // Reads the whole tail, normally in one call
+            }
+            records.flip();
+        }
+
+        Deque<ScanTrendPoint> points = new ArrayDeque<>();
+        Set<Integer> seen = new HashSet<>();
+        for (int end = records.limit(); end > 0 && points.size() < limit; end -= RECORD_BYTES) {
+            ScanTrendPoint point = decode(records, end - RECORD_BYTES);
+            if (seen.add(point.getBuildNumber())) {
+                points.addFirst(point);
+            }
+        }
+        List<ScanTrendPoint> sorted = new ArrayList<>(points);
+        sorted.sort((a, b) -> Integer.compare(a.getBuildNumber(), b.getBuildNumber()));
+        return sorted;
+    }
+
+    private Object lock() {
+        return LOCKS.computeIfAbsent(file.getAbsolutePath(), path -> new Object());
+    }
+
+    private boolean isValid() {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || (size - HEADER_BYTES) % RECORD_BYTES != 0) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // Reads the header, normally in one call
+            }
+            header.flip();
+            return header.remaining() == HEADER_BYTES && header.getInt() == MAGIC && header.getInt() == VERSION
+                && header.getInt() == RECORD_BYTES;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot read AgentScan trend index " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites the index from the summaries kept in the job's latest build records.
+     */
+    private void rebuild() throws IOException {
+        List<ByteBuffer> records = new ArrayList<>();
+        Run<?, ?> run = job.getLastBuild();
+        for (int i = 0; run != null && i < MAX_REBUILD_BUILDS; i++, run = run.getPreviousBuild()) {
+            AgentScanSummaryAction summary = run.getAction(AgentScanSummaryAction.class);
+            if (summary != null) {
+                records.add(encode(run, summary));
+            }
+        }
+
+        Path directory = file.getParentFile().toPath();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "trend", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(0).flip();
+                channel.write(header);
+                for (int i = records.size() - 1; i >= 0; i--) {
+                    ByteBuffer record = records.get(i);
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // No-op once the file has been moved into place
+            Files.deleteIfExists(temp);
+        }
+        LOGGER.log(Level.INFO, "Rebuilt AgentScan trend index {0} from {1} builds", new Object[] {file, records.size()});
+    }
+
+    private static ByteBuffer encode(Run<?, ?> run, AgentScanSummaryAction summary) {
+        ScanSummary counts = summary.getSummary();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putInt(run.getNumber())
+            .putLong(run.getTimeInMillis())
+            .putInt(counts.getTotalFindings())
+            .putInt(summary.getNewFindings())
+            .putInt(summary.getFixedFindings());
+        for (Severity severity : SEVERITIES) {
+            record.putInt(counts.getSeverityCount(severity));
+        }
+
+        FindingHistogram tools = counts.getToolCounts();
+        Integer[] order = new Integer[tools.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(tools.getCount(b), tools.getCount(a)));
+        for (int slot = 0; slot < TOOL_SLOTS && slot < order.length; slot++) {
+            record.position(TOOLS_OFFSET + slot * (TOOL_NAME_BYTES + 4));
+            record.put(truncate(tools.getValue(order[slot]).getBytes(StandardCharsets.UTF_8)));
+            record.position(TOOLS_OFFSET + slot * (TOOL_NAME_BYTES + 4) + TOOL_NAME_BYTES);
+            record.putInt(tools.getCount(order[slot]));
+        }
+        record.rewind();
+        return record;
+    }
+
+    /**
+     * Cuts a UTF-8 name to the slot width without splitting a character.
+     */
+    private static byte[] truncate(byte[] name) {
+        if (name.length <= TOOL_NAME_BYTES) {
+            return name;
+        }
+        int length = TOOL_NAME_BYTES;
+        while (length > 0 && (name[length] & 0xc0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(name, length);
+    }
+
+    private static ScanTrendPoint decode(ByteBuffer records, int offset) {
+        int buildNumber = records.getInt(offset);
+        long timestamp = records.getLong(offset + 4);
+        int total = records.getInt(offset + 12);
+        int newFindings = records.getInt(offset + 16);
+        int fixedFindings = records.getInt(offset + 20);
+        int[] severityCounts = new int[SEVERITIES.length];
+        for (int i = 0; i < severityCounts.length && i < SEVERITY_SLOTS; i++) {
+            severityCounts[i] = records.getInt(offset + 24 + i * 4);
+        }
+
+        List<String> names = new ArrayList<>(TOOL_SLOTS);
+        int[] toolCounts = new int[TOOL_SLOTS];
+        for (int slot = 0; slot < TOOL_SLOTS; slot++) {
+            int start = offset + TOOLS_OFFSET + slot * (TOOL_NAME_BYTES + 4);
+            int length = 0;
+            while (length < TOOL_NAME_BYTES && records.get(start + length) != 0) {
+                length++;
+            }
+            if (length == 0) {
+                break;
+            }
+            byte[] name = new byte[length];
+            for (int i = 0; i < length; i++) {
+                name[i] = records.get(start + i);
+            }
+            names.add(new String(name, StandardCharsets.UTF_8));
+            toolCounts[slot] = records.getInt(start + TOOL_NAME_BYTES);
+        }
+        return new ScanTrendPoint(buildNumber, timestamp, total, newFindings, fixedFindings, severityCounts,
+            names.toArray(new String[0]), Arrays.copyOf(toolCounts, names.size()));
+    }
+}
@@ -0,0 +1,74 @@
+package dev.agentscan.jenkins;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The counts of one build in the {@link ScanTrendIndex}.
+ */
+public final class ScanTrendPoint {
+
+    private final int buildNumber;
+    private final long timestamp;
+    private final int totalFindings;
+    private final int newFindings;
+    private final int fixedFindings;
+    private final int[] severityCounts;
+    private final String[] toolNames;
+    private final int[] toolCounts;
+
+    ScanTrendPoint(int buildNumber, long timestamp, int totalFindings, int newFindings, int fixedFindings,
+                   int[] severityCounts, String[] toolNames, int[] toolCounts) {
+        this.buildNumber = buildNumber;
+        this.timestamp = timestamp;
+        this.totalFindings = totalFindings;
+        this.newFindings = newFindings;
+        this.fixedFindings = fixedFindings;
+        this.severityCounts = severityCounts;
+        this.toolNames = toolNames;
+        this.toolCounts = toolCounts;
+    }
+
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getTotalFindings() {
+        return totalFindings;
+    }
+
+    public int getNewFindings() {
+        return newFindings;
+    }
+
+    public int getFixedFindings() {
+        return fixedFindings;
+    }
+
+    public int getSeverityCount(Severity severity) {
+        return severityCounts[severity.ordinal()];
+    }
+
+    /**
+     * Returns the count per severity, in {@link Severity} order from critical to info.
+     */
+    public int[] getSeverityCounts() {
+        return severityCounts.clone();
+    }
+
+    /**
+     * Returns the findings of the build's most frequent tools, most frequent first. Tools
+     * beyond those kept in the index are not listed.
+     */
+    public Map<String, Integer> getToolCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < toolNames.length; i++) {
+            counts.put(toolNames[i], toolCounts[i]);
+        }
+        return counts;
+    }
+}
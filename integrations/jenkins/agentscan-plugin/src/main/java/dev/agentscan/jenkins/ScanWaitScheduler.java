@@ -0,0 +1,69 @@
+package dev.agentscan.jenkins;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small controller-wide thread pool that drives asynchronous scan steps.
+ *
+ * <p>Steps schedule one short task per status check instead of holding a thread for the
+ * whole scan, so a handful of threads can serve hundreds of waiting builds. Work that may
+ * block for long, such as running Git on the agent, downloading results and writing
+ * reports, runs on a separate bounded pool so that it cannot hold up the status checks.</p>
+ */
+final class ScanWaitScheduler {
+
+    private static final int THREADS = Integer.getInteger(ScanWaitScheduler.class.getName() + ".threads", 4);
+    private static final int PROCESSING_THREADS =
+        Integer.getInteger(ScanWaitScheduler.class.getName() + ".processingThreads", 4);
+
+    private ScanWaitScheduler() {
+    }
+
+    static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return Holder.EXECUTOR.schedule(task, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a task that may block for long on the processing pool.
+     */
+    static Future<?> process(Runnable task) {
+        return Holder.PROCESSOR.submit(task);
+    }
+
+    @Terminator
+    public static void shutdown() {
+        Holder.EXECUTOR.shutdownNow();
+        Holder.PROCESSOR.shutdownNow();
+    }
+
+    private static final class Holder {
+        static final ScheduledExecutorService EXECUTOR = create();
+        static final ExecutorService PROCESSOR = createProcessor();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(THREADS,
+                new NamingThreadFactory(new DaemonThreadFactory(), "AgentScan scan waiter"));
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+
+        private static ExecutorService createProcessor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(PROCESSING_THREADS, PROCESSING_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "AgentScan result processor"));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
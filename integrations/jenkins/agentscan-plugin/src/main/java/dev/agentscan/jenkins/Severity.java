@@ -0,0 +1,40 @@
+package dev.agentscan.jenkins;
+
+import java.util.Locale;
+
+/**
+ * Severity of a security finding, ordered from most to least severe.
+ */
+public enum Severity {
+
+    CRITICAL,
+    HIGH,
+    MEDIUM,
+    LOW,
+    INFO;
+
+    private static final Severity[] VALUES = values();
+
+    private final String label = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * Returns the lower-case name used by the AgentScan API.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Parses an API severity, treating unknown or missing values as {@link #INFO}.
+     */
+    public static Severity fromLabel(String label) {
+        if (label != null) {
+            for (Severity severity : VALUES) {
+                if (severity.label.equalsIgnoreCase(label)) {
+                    return severity;
+                }
+            }
+        }
+        return INFO;
+    }
+}
@@ -0,0 +1,26 @@
+package dev.agentscan.jenkins;
+
+/**
+ * How a build waits for the AgentScan API to report a scan as finished.
+ */
+public enum StatusTransport {
+
+    /** Periodic status requests with backoff. */
+    POLL("Polling"),
+
+    /** Status requests the server may hold open until the status changes. */
+    LONG_POLL("Long polling"),
+
+    /** A server-sent events stream, falling back to polling if unsupported. */
+    SSE("Server-sent events");
+
+    private final String displayName;
+
+    StatusTransport(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
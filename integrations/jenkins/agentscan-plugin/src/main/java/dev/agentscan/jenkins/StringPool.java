@@ -0,0 +1,23 @@
+package dev.agentscan.jenkins;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-scan pool that makes equal strings share one instance.
+ *
+ * <p>Tool names, rule IDs, file paths and titles repeat across thousands of findings;
+ * pooling them keeps a single copy of each.</p>
+ */
+final class StringPool {
+
+    private final Map<String, String> strings = new HashMap<>();
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
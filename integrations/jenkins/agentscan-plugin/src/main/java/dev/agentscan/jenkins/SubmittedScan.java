@@ -0,0 +1,71 @@
+package dev.agentscan.jenkins;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A scan request accepted by the API, together with what is needed to turn its results
+ * into a {@link ScanResult}.
+ *
+ * <p>An incremental scan carries the commit it was diffed against and the changed paths,
+ * so findings for every other path can be taken from that commit's baseline. A scan with
+ * no changed paths is answered from the baseline alone and has no job ID.</p>
+ */
+final class SubmittedScan implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String jobId;
+    private final GitMetadata git;
+    private final String baseCommit;
+    private final String baselinePin;
+    private final ArrayList<String> changedFiles;
+
+    SubmittedScan(String jobId, GitMetadata git, String baseCommit, String baselinePin, List<String> changedFiles) {
+        this.jobId = jobId;
+        this.git = git;
+        this.baseCommit = baseCommit;
+        this.baselinePin = baselinePin;
+        this.changedFiles = changedFiles == null ? null : new ArrayList<>(changedFiles);
+    }
+
+    /**
+     * Returns the API job ID, or {@code null} if nothing needed scanning.
+     */
+    String getJobId() {
+        return jobId;
+    }
+
+    GitMetadata getGit() {
+        return git;
+    }
+
+    /**
+     * Returns the previously scanned commit this scan is relative to, or {@code null} for a full scan.
+     */
+    String getBaseCommit() {
+        return baseCommit;
+    }
+
+    /**
+     * Returns the {@linkplain ScanBaselineStore#pin pin} of the base commit's baseline, or
+     * {@code null} for a full scan.
+     */
+    String getBaselinePin() {
+        return baselinePin;
+    }
+
+    List<String> getChangedFiles() {
+        return changedFiles == null ? Collections.emptyList() : Collections.unmodifiableList(changedFiles);
+    }
+
+    boolean isIncremental() {
+        return baseCommit != null;
+    }
+
+    boolean isBaselineOnly() {
+        return jobId == null;
+    }
+}
@@ -0,0 +1,113 @@
+package dev.agentscan.jenkins;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Computes the {@link ScanSummary} in the same pass that reads the findings.
+ *
+ * <p>Findings are counted by severity, tool, rule, top-level directory, CWE and file as
+ * they stream past, so no later step has to walk them again. A server-provided
+ * {@code summary} object takes precedence for the total and the severity counts.</p>
+ */
+class SummaryCounter implements FindingHandler {
+
+    private static final Severity[] SEVERITIES = Severity.values();
+
+    private Map<String, Object> serverSummary;
+    private int total;
+    private final int[] severityCounts = new int[SEVERITIES.length];
+    private final FindingHistogram toolCounts = new FindingHistogram();
+    private final FindingHistogram ruleCounts = new FindingHistogram();
+    private final FindingHistogram directoryCounts = new FindingHistogram();
+    private final FindingHistogram cweCounts = new FindingHistogram();
+    private final FindingHistogram fileCounts = new FindingHistogram();
+    private String[] fileDirectories = new String[64];
+
+    @Override
+    public void onSummary(Map<String, Object> summary) {
+        this.serverSummary = summary;
+    }
+
+    @Override
+    public void onFinding(Finding finding) {
+        total++;
+        severityCounts[finding.getSeverity().ordinal()]++;
+        toolCounts.add(finding.getTool() != null ? finding.getTool() : "unknown");
+        ruleCounts.add(finding.getRuleId());
+        cweCounts.add(finding.getCwe());
+        String filePath = finding.getFilePath();
+        if (filePath != null) {
+            int fileId = fileCounts.add(filePath);
+            if (fileId == fileDirectories.length) {
+                fileDirectories = Arrays.copyOf(fileDirectories, fileId * 2);
+            }
+            // Files have many findings each; the directory is worked out once per file
+            String directory = fileDirectories[fileId];
+            if (directory == null) {
+                directory = topLevelDirectory(filePath);
+                fileDirectories[fileId] = directory;
+            }
+            directoryCounts.add(directory);
+        }
+    }
+
+    /**
+     * Returns the first segment of a repository-relative path, or {@code .} for files at the root.
+     */
+    private static String topLevelDirectory(String filePath) {
+        int start = 0;
+        int length = filePath.length();
+        while (start < length) {
+            char c = filePath.charAt(start);
+            if (c == '/' || c == '\\') {
+                start++;
+            } else if (c == '.' && start + 1 < length && (filePath.charAt(start + 1) == '/'
+                    || filePath.charAt(start + 1) == '\\')) {
+                start += 2;
+            } else {
+                break;
+            }
+        }
+        for (int i = start; i < length; i++) {
+            char c = filePath.charAt(i);
+            if (c == '/' || c == '\\') {
+                return filePath.substring(start, i);
+            }
+        }
+        return ".";
+    }
+
+    @SuppressWarnings("unchecked")
+    ScanSummary getSummary() {
+        if (serverSummary == null) {
+            return new ScanSummary(total, severityCounts.clone(), toolCounts, ruleCounts, directoryCounts, cweCounts,
+                fileCounts);
+        }
+
+        int totalFindings = getIntValue(serverSummary, "total_findings");
+        int[] serverCounts = new int[SEVERITIES.length];
+        Map<String, Object> bySeverity = (Map<String, Object>) serverSummary.get("by_severity");
+        if (bySeverity != null) {
+            for (Severity severity : SEVERITIES) {
+                serverCounts[severity.ordinal()] = getIntValue(bySeverity, severity.getLabel());
+            }
+        }
+        return new ScanSummary(totalFindings, serverCounts, toolCounts, ruleCounts, directoryCounts, cweCounts,
+            fileCounts);
+    }
+
+    private static int getIntValue(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof String) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
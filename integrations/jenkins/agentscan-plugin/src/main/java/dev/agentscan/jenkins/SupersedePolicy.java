@@ -0,0 +1,26 @@
+package dev.agentscan.jenkins;
+
+/**
+ * What happens to a running scan when a newer commit of the same branch is submitted.
+ */
+public enum SupersedePolicy {
+
+    /** Every scan runs to its end. */
+    KEEP("Keep every scan"),
+
+    /** The older scan is cancelled and its build ends as not built. */
+    CANCEL("Cancel the older scan"),
+
+    /** The older scan is cancelled and its build reports the newer scan's findings. */
+    ATTACH("Cancel the older scan and report the newer scan's findings");
+
+    private final String displayName;
+
+    SupersedePolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
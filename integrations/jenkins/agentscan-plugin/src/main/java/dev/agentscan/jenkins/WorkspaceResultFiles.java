@@ -0,0 +1,88 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hudson.FilePath;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result files written to the workspace for each scan: {@code agentscan-results.json}
+ * and, if requested, {@code agentscan-results.sarif}.
+ *
+ * <p>Both are streamed to the agent through {@link CompressedFileWriter} as they are written.</p>
+ */
+final class WorkspaceResultFiles implements Closeable {
+
+    private final List<FindingHandler> writers = new ArrayList<>();
+    private final List<Closeable> closeables = new ArrayList<>();
+
+    WorkspaceResultFiles(ObjectMapper objectMapper, FilePath workspace, ScanOptions options)
+            throws IOException, InterruptedException {
+        try {
+            JsonResultsWriter jsonWriter = new JsonResultsWriter(objectMapper,
+                CompressedFileWriter.write(workspace.child("agentscan-results.json")));
+            writers.add(jsonWriter);
+            closeables.add(jsonWriter);
+            if (options.getOutputFormat().contains("sarif")) {
+                SarifResultsWriter sarifWriter = new SarifResultsWriter(objectMapper,
+                    CompressedFileWriter.write(workspace.child("agentscan-results.sarif")));
+                writers.add(sarifWriter);
+                closeables.add(sarifWriter);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the handlers that write the files while results are parsed.
+     */
+    List<FindingHandler> getWriters() {
+        return writers;
+    }
+
+    /**
+     * Writes already collected findings, e.g. a result reused from the cache, passing each
+     * one to the {@code observers} as well.
+     */
+    void writeAll(List<Finding> findings, FindingHandler... observers) throws IOException {
+        for (FindingHandler writer : writers) {
+            writer.onFindingsStart();
+        }
+        for (Finding finding : findings) {
+            for (FindingHandler observer : observers) {
+                observer.onFinding(finding);
+            }
+            for (FindingHandler writer : writers) {
+                writer.onFinding(finding);
+            }
+        }
+        for (FindingHandler writer : writers) {
+            writer.onFindingsEnd();
+            writer.onEnd();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Closeable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dev.agentscan.jenkins;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the new, unchanged and fixed counts of {@link FindingDiff}.
+ */
+public class FindingDiffTest {
+
+    private static final Finding A = finding("a.py");
+    private static final Finding B = finding("b.py");
+    private static final Finding C = finding("c.py");
+
+    @Test
+    public void everyFindingIsNewWithoutPreviousBuild() {
+        FindingDiff diff = new FindingDiff(null);
+        diff.onFinding(A);
+        diff.onFinding(B);
+
+        assertFalse(diff.hasPrevious());
+        assertEquals(2, diff.getNewCount());
+        assertEquals(0, diff.getUnchangedCount());
+        assertEquals(0, diff.getFixedCount());
+    }
+
+    @Test
+    public void everyFindingIsNewAfterABuildWithoutFindings() {
+        FindingDiff diff = new FindingDiff(previous());
+        diff.onFinding(A);
+
+        assertTrue(diff.hasPrevious());
+        assertEquals(1, diff.getNewCount());
+        assertEquals(0, diff.getFixedCount());
+    }
+
+    @Test
+    public void everyPreviousFindingIsFixedWhenNoneAreLeft() {
+        FindingDiff diff = new FindingDiff(previous(A, B, B));
+
+        assertEquals(0, diff.getNewCount());
+        assertEquals(0, diff.getUnchangedCount());
+        assertEquals(3, diff.getFixedCount());
+    }
+
+    @Test
+    public void countsFingerprintsAsAMultiset() {
+        // A was reported twice before and three times now, B is gone and C is new
+        FindingDiff diff = new FindingDiff(previous(A, A, B));
+        assertFalse(diff.isNew(A));
+        assertFalse(diff.isNew(finding("./a.py")));
+        assertTrue(diff.isNew(finding("a.py")));
+        assertTrue(diff.isNew(C));
+
+        assertEquals(2, diff.getNewCount());
+        assertEquals(2, diff.getUnchangedCount());
+        assertEquals(1, diff.getFixedCount());
+    }
+
+    @Test
+    public void classifiesEachFindingOnce() {
+        FindingDiff diff = new FindingDiff(previous(A));
+        assertFalse(diff.isNew(A));
+        // The gate asks first, then the diff sees the same finding as a handler
+        assertFalse(diff.isNew(A));
+        diff.onFinding(A);
+
+        assertEquals(0, diff.getNewCount());
+        assertEquals(1, diff.getUnchangedCount());
+        assertEquals(0, diff.getFixedCount());
+    }
+
+    @Test
+    public void keepsThisBuildsFingerprintsForTheNext() {
+        FindingDiff diff = new FindingDiff(null);
+        for (int i = 0; i < 3000; i++) {
+            diff.onFinding(finding("file" + (i % 1000) + ".py"));
+        }
+
+        FindingDiff next = new FindingDiff(diff.getFingerprints());
+        next.onFinding(finding("file0.py"));
+        next.onFinding(finding("other.py"));
+
+        assertEquals(3000, diff.getFingerprints().size());
+        assertEquals(1, next.getNewCount());
+        assertEquals(2999, next.getFixedCount());
+    }
+
+    private static FingerprintSet previous(Finding... findings) {
+        long[] fingerprints = new long[findings.length];
+        for (int i = 0; i < findings.length; i++) {
+            fingerprints[i] = FindingFingerprint.of(findings[i]);
+        }
+        return FingerprintSet.of(fingerprints, fingerprints.length);
+    }
+
+    private static Finding finding(String filePath) {
+        return new Finding("f-" + filePath, "semgrep", "rule-1", Severity.HIGH, null, null, "Title", null, filePath,
+            1, 0, "eval(x)", 1.0);
+    }
+}
@@ -0,0 +1,73 @@
+package dev.agentscan.jenkins;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Checks which differences between two findings change their {@link FindingFingerprint}.
+ */
+public class FindingFingerprintTest {
+
+    @Test
+    public void ignoresLineNumbersAndIds() {
+        assertEquals(fingerprint("f-1", "semgrep", "r", "src/A.java", 10, "eval(x)", "T"),
+            fingerprint("f-2", "semgrep", "r", "src/A.java", 250, "eval(x)", "T"));
+    }
+
+    @Test
+    public void normalizesPaths() {
+        long expected = fingerprint("semgrep", "r", "src/main/A.java", "eval(x)");
+
+        assertEquals(expected, fingerprint("semgrep", "r", "./src/main/A.java", "eval(x)"));
+        assertEquals(expected, fingerprint("semgrep", "r", "/src/main/A.java", "eval(x)"));
+        assertEquals(expected, fingerprint("semgrep", "r", ".\\src\\main\\A.java", "eval(x)"));
+        assertEquals(expected, fingerprint("semgrep", "r", "/./src/main/A.java", "eval(x)"));
+        assertNotEquals(expected, fingerprint("semgrep", "r", "src/main/B.java", "eval(x)"));
+        // Only a leading ./ is dropped; a dot file keeps its name
+        assertNotEquals(fingerprint("semgrep", "r", ".env", "x"), fingerprint("semgrep", "r", "env", "x"));
+    }
+
+    @Test
+    public void normalizesSnippetWhitespace() {
+        long expected = fingerprint("semgrep", "r", "a.py", "if x:\n    eval(x)");
+
+        assertEquals(expected, fingerprint("semgrep", "r", "a.py", "  if x: eval(x)\n"));
+        assertEquals(expected, fingerprint("semgrep", "r", "a.py", "if x:\t\t eval(x)"));
+        assertNotEquals(expected, fingerprint("semgrep", "r", "a.py", "if x:eval(x)"));
+    }
+
+    @Test
+    public void fallsBackToTheTitleWithoutSnippet() {
+        assertEquals(fingerprint("f-1", "semgrep", "r", "a.py", 1, null, "Use of eval"),
+            fingerprint("f-1", "semgrep", "r", "a.py", 1, " \n", "Use of eval"));
+        assertNotEquals(fingerprint("f-1", "semgrep", "r", "a.py", 1, null, "Use of eval"),
+            fingerprint("f-1", "semgrep", "r", "a.py", 1, null, "Use of exec"));
+        // With a snippet the title does not count
+        assertEquals(fingerprint("f-1", "semgrep", "r", "a.py", 1, "eval(x)", "Use of eval"),
+            fingerprint("f-1", "semgrep", "r", "a.py", 1, "eval(x)", "Dangerous eval"));
+    }
+
+    @Test
+    public void separatesFields() {
+        assertNotEquals(fingerprint("ab", "c", "a.py", "x"), fingerprint("a", "bc", "a.py", "x"));
+        assertNotEquals(fingerprint("semgrep", null, "a.py", "x"), fingerprint(null, "semgrep", "a.py", "x"));
+    }
+
+    @Test
+    public void formatsAsSixteenHexDigits() {
+        assertEquals("000000000000002a", FindingFingerprint.toHex(42));
+        assertEquals("ffffffffffffffff", FindingFingerprint.toHex(-1));
+    }
+
+    private static long fingerprint(String tool, String ruleId, String filePath, String snippet) {
+        return fingerprint("f-1", tool, ruleId, filePath, 1, snippet, "Title");
+    }
+
+    private static long fingerprint(String id, String tool, String ruleId, String filePath, int line, String snippet,
+                                    String title) {
+        return FindingFingerprint.of(new Finding(id, tool, ruleId, Severity.HIGH, null, null, title, null, filePath,
+            line, 0, snippet, 1.0));
+    }
+}
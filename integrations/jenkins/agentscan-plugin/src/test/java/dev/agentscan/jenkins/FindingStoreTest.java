@@ -0,0 +1,178 @@
+package dev.agentscan.jenkins;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes findings to a {@link FindingStore} and reads them back.
+ */
+public class FindingStoreTest {
+
+    private static final int BLOCK_SIZE = FindingStore.BLOCK_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsEveryField() throws IOException {
+        List<Finding> findings = Arrays.asList(
+            new Finding("f-1", "semgrep", "python.sqli", Severity.CRITICAL, "injection", "CWE-89", "SQL injection",
+                "Query built from user input", "src/db.py", 12, 7, "cursor.execute(q % x)", 0.95),
+            new Finding(null, null, null, Severity.INFO, null, null, null, null, null, 0, 0, null, 0),
+            new Finding("", "", "", Severity.LOW, "", "", "", "", "", 1, 1, "", -0.5),
+            new Finding("f-ü", "bandit", "B105", Severity.MEDIUM, "secrets", null, "Hartkodiertes Passwort: “geheim”",
+                "パスワードがハードコードされています 🔑", "src/ünïcode/файл.py", Integer.MAX_VALUE, 3,
+                "password = \"🔑\"\n\tnext line", Double.MIN_VALUE));
+
+        List<Finding> read = writeAndOpen(findings).read(0, findings.size());
+
+        assertFindings(findings, read);
+    }
+
+    @Test
+    public void storesNoFindings() throws IOException {
+        FindingStore store = writeAndOpen(Collections.emptyList());
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.read(0, 10).size());
+    }
+
+    @Test
+    public void readsExactlyOneBlock() throws IOException {
+        List<Finding> findings = findings(BLOCK_SIZE);
+        FindingStore store = writeAndOpen(findings);
+
+        assertEquals(BLOCK_SIZE, store.size());
+        assertFindings(findings, store.read(0, BLOCK_SIZE));
+        assertFindings(findings.subList(BLOCK_SIZE - 1, BLOCK_SIZE), store.read(BLOCK_SIZE - 1, BLOCK_SIZE + 5));
+    }
+
+    @Test
+    public void readsRangesAcrossBlocks() throws IOException {
+        List<Finding> findings = findings(BLOCK_SIZE + 1);
+        FindingStore store = writeAndOpen(findings);
+
+        assertEquals(BLOCK_SIZE + 1, store.size());
+        assertFindings(findings, store.read(0, BLOCK_SIZE + 1));
+        // Only in the second block
+        assertFindings(findings.subList(BLOCK_SIZE, BLOCK_SIZE + 1), store.read(BLOCK_SIZE, BLOCK_SIZE + 1));
+        // Across the boundary
+        assertFindings(findings.subList(BLOCK_SIZE - 2, BLOCK_SIZE + 1), store.read(BLOCK_SIZE - 2, BLOCK_SIZE + 1));
+        // Within the first block, not starting at its beginning
+        assertFindings(findings.subList(500, 510), store.read(500, 510));
+    }
+
+    @Test
+    public void clampsRanges() throws IOException {
+        List<Finding> findings = findings(10);
+        FindingStore store = writeAndOpen(findings);
+
+        assertFindings(findings.subList(0, 3), store.read(-5, 3));
+        assertFindings(findings.subList(8, 10), store.read(8, Integer.MAX_VALUE));
+        assertEquals(0, store.read(5, 5).size());
+        assertEquals(0, store.read(7, 2).size());
+        assertEquals(0, store.read(10, 20).size());
+    }
+
+    @Test
+    public void rejectsCorruptHeaders() throws IOException {
+        File file = new File(folder.getRoot(), FindingStore.FILE_NAME);
+        FindingStore.write(file, findings(3));
+        byte[] valid = Files.readAllBytes(file.toPath());
+
+        assertRejected(file, withInt(valid, 0, 0x12345678), "Not an AgentScan findings file");
+        assertRejected(file, withInt(valid, 4, 1), "Not an AgentScan findings file");
+        assertRejected(file, withInt(valid, 8, -1), "Corrupt AgentScan findings file");
+        assertRejected(file, withInt(valid, 12, 0), "Corrupt AgentScan findings file");
+        assertRejected(file, withInt(valid, 16, 2), "Corrupt AgentScan findings file");
+        assertRejected(file, Arrays.copyOf(valid, 20), "Truncated AgentScan findings file");
+    }
+
+    @Test
+    public void rejectsCorruptBlocks() throws IOException {
+        File file = new File(folder.getRoot(), FindingStore.FILE_NAME);
+        FindingStore.write(file, findings(3));
+        byte[] content = Files.readAllBytes(file.toPath());
+        // The first block follows the 44-byte header
+        for (int i = 44; i < 54; i++) {
+            content[i] ^= 0x5a;
+        }
+        Files.write(file.toPath(), content);
+
+        FindingStore store = FindingStore.open(file);
+        try {
+            store.read(0, 3);
+            fail("Read a corrupt block");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt"));
+        }
+    }
+
+    private FindingStore writeAndOpen(List<Finding> findings) throws IOException {
+        File file = new File(folder.getRoot(), "build/" + FindingStore.FILE_NAME);
+        FindingStore.write(file, findings);
+        return FindingStore.open(file);
+    }
+
+    private static void assertRejected(File file, byte[] content, String message) throws IOException {
+        Files.write(file.toPath(), content);
+        try {
+            FindingStore.open(file);
+            fail("Opened a damaged file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    private static byte[] withInt(byte[] content, int offset, int value) {
+        byte[] copy = content.clone();
+        ByteBuffer.wrap(copy).putInt(offset, value);
+        return copy;
+    }
+
+    private static List<Finding> findings(int count) {
+        List<Finding> findings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            findings.add(new Finding("f-" + i, i % 2 == 0 ? "semgrep" : "bandit", "rule-" + (i % 7),
+                Severity.values()[i % Severity.values().length], null, i % 3 == 0 ? "CWE-" + i : null,
+                "Finding " + i, null, "src/file" + (i % 50) + ".py", i + 1, i % 80, "line " + i, i / 1000.0));
+        }
+        return findings;
+    }
+
+    private static void assertFindings(List<Finding> expected, List<Finding> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Finding e = expected.get(i);
+            Finding a = actual.get(i);
+            String at = "finding " + i;
+            assertEquals(at, e.getId(), a.getId());
+            assertEquals(at, e.getTool(), a.getTool());
+            assertEquals(at, e.getRuleId(), a.getRuleId());
+            assertEquals(at, e.getSeverity(), a.getSeverity());
+            assertEquals(at, e.getCategory(), a.getCategory());
+            assertEquals(at, e.getCwe(), a.getCwe());
+            assertEquals(at, e.getTitle(), a.getTitle());
+            assertEquals(at, e.getDescription(), a.getDescription());
+            assertEquals(at, e.getFilePath(), a.getFilePath());
+            assertEquals(at, e.getLineNumber(), a.getLineNumber());
+            assertEquals(at, e.getColumnNumber(), a.getColumnNumber());
+            assertEquals(at, e.getCodeSnippet(), a.getCodeSnippet());
+            assertEquals(at, Double.doubleToLongBits(e.getConfidence()), Double.doubleToLongBits(a.getConfidence()));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package dev.agentscan.jenkins;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the bucketed lookup of {@link FingerprintSet} and its file format.
+ */
+public class FingerprintSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void emptySetFindsNothing() {
+        FingerprintSet set = FingerprintSet.of(new long[0], 0);
+
+        assertEquals(0, set.size());
+        for (long probe : new long[] {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}) {
+            assertEquals(0, set.lowerBound(probe));
+        }
+    }
+
+    @Test
+    public void sortsAndKeepsDuplicates() {
+        FingerprintSet set = FingerprintSet.of(new long[] {5, -3, 5, 0, 99}, 4);
+
+        assertEquals(4, set.size());
+        assertEquals(-3, set.get(0));
+        assertEquals(0, set.get(1));
+        assertEquals(5, set.get(2));
+        assertEquals(5, set.get(3));
+    }
+
+    @Test
+    public void lowerBoundAtBucketBoundaries() {
+        // 16 fingerprints use 2 bucket bits: buckets start at MIN_VALUE, 0xc0.., 0 and 0x40..
+        long lastOfBucket0 = 0xbfffffffffffffffL;
+        long firstOfBucket1 = 0xc000000000000000L;
+        long lastOfBucket1 = -1;
+        long firstOfBucket2 = 0;
+        long lastOfBucket2 = 0x3fffffffffffffffL;
+        long firstOfBucket3 = 0x4000000000000000L;
+        long[] fingerprints = {
+            Long.MIN_VALUE, Long.MIN_VALUE, lastOfBucket0,
+            firstOfBucket1, lastOfBucket1, lastOfBucket1, lastOfBucket1,
+            firstOfBucket2, firstOfBucket2, lastOfBucket2, lastOfBucket2,
+            firstOfBucket3, firstOfBucket3, firstOfBucket3, Long.MAX_VALUE, Long.MAX_VALUE,
+        };
+        FingerprintSet set = FingerprintSet.of(fingerprints, fingerprints.length);
+
+        // Equal fingerprints at either end of a bucket are found from the first of them
+        assertEquals(0, set.lowerBound(Long.MIN_VALUE));
+        assertEquals(4, set.lowerBound(lastOfBucket1));
+        assertEquals(7, set.lowerBound(firstOfBucket2));
+        assertEquals(9, set.lowerBound(lastOfBucket2));
+        assertEquals(11, set.lowerBound(firstOfBucket3));
+        assertEquals(14, set.lowerBound(Long.MAX_VALUE));
+        // Absent fingerprints past a bucket's last entry point at the next bucket's first
+        assertEquals(3, set.lowerBound(lastOfBucket0 + 1));
+        assertEquals(11, set.lowerBound(lastOfBucket2 + 1));
+        assertEquals(14, set.lowerBound(firstOfBucket3 + 1));
+        assertBruteForce(set, fingerprints);
+    }
+
+    @Test
+    public void lowerBoundMatchesLinearSearch() {
+        Random random = new Random(42);
+        for (int size : new int[] {1, 7, 8, 9, 100, 4096, 20000}) {
+            long[] fingerprints = new long[size];
+            for (int i = 0; i < size; i++) {
+                // Every fifth one repeats an earlier fingerprint, like a finding reported twice
+                fingerprints[i] = i > 0 && i % 5 == 0 ? fingerprints[random.nextInt(i)] : random.nextLong();
+            }
+            FingerprintSet set = FingerprintSet.of(fingerprints, size);
+            long[] probes = new long[200];
+            for (int i = 0; i < probes.length; i++) {
+                probes[i] = i % 2 == 0 ? fingerprints[random.nextInt(size)] : random.nextLong();
+            }
+            assertBruteForce(set, probes);
+        }
+    }
+
+    @Test
+    public void writesAndReadsBack() throws IOException {
+        long[] fingerprints = {Long.MAX_VALUE, 7, -7, 7, Long.MIN_VALUE};
+        FingerprintSet set = FingerprintSet.of(fingerprints, fingerprints.length);
+        File file = new File(folder.getRoot(), "build/" + FingerprintSet.FILE_NAME);
+
+        set.write(file);
+        FingerprintSet read = FingerprintSet.read(file);
+
+        assertEquals(12 + 5 * 8, file.length());
+        assertEquals(5, read.size());
+        for (int i = 0; i < set.size(); i++) {
+            assertEquals(set.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    public void writesAndReadsBackAnEmptySet() throws IOException {
+        File file = new File(folder.getRoot(), FingerprintSet.FILE_NAME);
+
+        FingerprintSet.of(new long[0], 0).write(file);
+
+        assertEquals(12, file.length());
+        assertEquals(0, FingerprintSet.read(file).size());
+    }
+
+    @Test
+    public void rejectsOtherAndTruncatedFiles() throws IOException {
+        File file = new File(folder.getRoot(), FingerprintSet.FILE_NAME);
+        FingerprintSet.of(new long[] {1, 2, 3}, 3).write(file);
+        byte[] valid = Files.readAllBytes(file.toPath());
+
+        assertRejected(file, Arrays.copyOf(valid, valid.length - 1), "Truncated");
+        assertRejected(file, Arrays.copyOf(valid, 8), "Not a finding fingerprint file");
+        byte[] otherMagic = valid.clone();
+        otherMagic[0] ^= 1;
+        assertRejected(file, otherMagic, "Not a finding fingerprint file");
+        byte[] otherVersion = valid.clone();
+        otherVersion[7] = 9;
+        assertRejected(file, otherVersion, "Not a finding fingerprint file");
+    }
+
+    private static void assertRejected(File file, byte[] content, String message) throws IOException {
+        Files.write(file.toPath(), content);
+        try {
+            FingerprintSet.read(file);
+            fail("Read a damaged file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    private static void assertBruteForce(FingerprintSet set, long[] probes) {
+        for (long probe : probes) {
+            int expected = 0;
+            while (expected < set.size() && set.get(expected) < probe) {
+                expected++;
+            }
+            assertEquals("lower bound of " + probe, expected, set.lowerBound(probe));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package dev.agentscan.jenkins;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compiles quality gate policies and evaluates them against findings.
+ */
+public class QualityGateTest {
+
+    @Test
+    public void emptyPolicyNeverFails() throws IOException {
+        assertTrue(QualityGate.compile(null).isEmpty());
+        assertTrue(QualityGate.compile("  # nothing to check\n;,").isEmpty());
+        assertFalse(trips("", finding(Severity.CRITICAL)));
+    }
+
+    @Test
+    public void compiledGatesAreReused() {
+        assertSame(QualityGate.compile("critical > 0"), QualityGate.compile("critical > 0"));
+    }
+
+    @Test
+    public void reportsCompileErrorsWithTheirLine() {
+        assertCompileError("bogus > 0", "Expected a severity (critical, high, medium, low, info or any) but found 'bogus'"
+            + " on line 1");
+        assertCompileError("critical > 0\nhigh > many", "Expected a number but found 'many' on line 2");
+        assertCompileError("high >= 0", "'high >= 0' always holds on line 1");
+        assertCompileError("high > -1", "'high > -1' always holds on line 1");
+        assertCompileError("high in", "Expected a path pattern at the end of the clause on line 1");
+        assertCompileError("high path src", "Expected in, tool, rule, cwe or category but found 'path' on line 1");
+        assertCompileError("critical > 0\n\nignore", "'ignore' needs at least one filter on line 3");
+        assertCompileError("high in \"src/**", "Unterminated quote on line 1");
+    }
+
+    @Test
+    public void severityMatchesExactlyOrAndAbove() throws IOException {
+        assertTrue(trips("high", finding(Severity.HIGH)));
+        assertFalse(trips("high", finding(Severity.CRITICAL)));
+        assertTrue(trips("medium+", finding(Severity.CRITICAL)));
+        assertTrue(trips("medium+", finding(Severity.MEDIUM)));
+        assertFalse(trips("medium+", finding(Severity.LOW)));
+        assertTrue(trips("any", finding(Severity.INFO)));
+        assertTrue(trips("HIGH > 0", finding(Severity.HIGH)));
+    }
+
+    @Test
+    public void thresholdsTripOnTheFindingThatCrossesThem() throws IOException {
+        assertEquals(1, tripIndex("high", Severity.HIGH, 5));
+        assertEquals(3, tripIndex("high > 2", Severity.HIGH, 5));
+        assertEquals(2, tripIndex("high >= 2", Severity.HIGH, 5));
+        assertEquals(-1, tripIndex("high > 5", Severity.HIGH, 5));
+        assertEquals(5, tripIndex("high >= 5", Severity.HIGH, 5));
+    }
+
+    @Test
+    public void pathFilterMatchesGlobs() throws IOException {
+        assertTrue(trips("high in src/**", finding(Severity.HIGH, "src/app/db.py")));
+        assertTrue(trips("high in src/**", finding(Severity.HIGH, "./src/db.py")));
+        assertTrue(trips("high in src/**", finding(Severity.HIGH, "src\\app\\db.py")));
+        assertFalse(trips("high in src/**", finding(Severity.HIGH, "test/src/db.py")));
+        assertFalse(trips("high in src/*.py", finding(Severity.HIGH, "src/app/db.py")));
+        assertTrue(trips("high in src/d?.py", finding(Severity.HIGH, "src/db.py")));
+        // A pattern without a slash matches file names in any directory
+        assertTrue(trips("high in *.py", finding(Severity.HIGH, "src/app/db.py")));
+        assertTrue(trips("high in \"**/test/**\"", finding(Severity.HIGH, "a/test/b.py")));
+        assertTrue(trips("high in \"**/test/**\"", finding(Severity.HIGH, "test/b.py")));
+        assertFalse(trips("high in src/**", finding(Severity.HIGH, null)));
+    }
+
+    @Test
+    public void toolRuleCweAndCategoryFilters() throws IOException {
+        Finding finding = new Finding("f-1", "semgrep", "python.sqli", Severity.HIGH, "injection", "CWE-89",
+            "SQL injection", null, "src/db.py", 12, 0, null, 0.9);
+
+        assertTrue(trips("high tool SEMGREP", finding));
+        assertFalse(trips("high tool bandit", finding));
+        assertTrue(trips("high rule python.sqli", finding));
+        assertFalse(trips("high rule PYTHON.SQLI", finding));
+        assertTrue(trips("high cwe 89", finding));
+        assertTrue(trips("high cwe cwe-89", finding));
+        assertFalse(trips("high cwe 79", finding));
+        assertTrue(trips("high category Injection", finding));
+        assertTrue(trips("high tool semgrep and rule python.sqli cwe 89 in src/**", finding));
+        assertFalse(trips("high tool semgrep rule other", finding));
+    }
+
+    @Test
+    public void notNegatesOneFilter() throws IOException {
+        assertFalse(trips("high not in \"**/test/**\"", finding(Severity.HIGH, "src/test/a.py")));
+        assertTrue(trips("high not in \"**/test/**\"", finding(Severity.HIGH, "src/a.py")));
+        assertFalse(trips("high not tool semgrep in src/**", finding(Severity.HIGH, "src/a.py")));
+    }
+
+    @Test
+    public void ignoredFindingsCountForNoCondition() throws IOException {
+        String policy = "ignore in \"**/test/**\"\nhigh > 0";
+        assertFalse(trips(policy, finding(Severity.HIGH, "src/test/a.py")));
+        assertTrue(trips(policy, finding(Severity.HIGH, "src/a.py")));
+    }
+
+    @Test
+    public void clausesAreSeparatedByLinesSemicolonsCommasAndOr() throws IOException {
+        QualityGate gate = QualityGate.compile("critical > 9 # high > 0; not a clause\n"
+            + "medium > 1; low > 1, info > 1 or fail if any >= 7");
+        QualityGate.Evaluator evaluator = gate.newEvaluator(null, null);
+        for (Severity severity : Arrays.asList(Severity.MEDIUM, Severity.MEDIUM, Severity.LOW, Severity.INFO,
+                Severity.INFO, Severity.HIGH, Severity.HIGH)) {
+            evaluator.onFinding(finding(severity));
+        }
+
+        assertTrue(evaluator.isTripped());
+        assertEquals(Arrays.asList("medium > 1 (2 findings)", "info > 1 (2 findings)", "any >= 7 (7 findings)"),
+            evaluator.getViolations());
+    }
+
+    @Test
+    public void reportsTheConditionAndFindingThatTripped() throws IOException {
+        List<String> trips = new ArrayList<>();
+        QualityGate.Evaluator evaluator = QualityGate.compile("high > 1").newEvaluator(
+            (condition, finding) -> trips.add(condition + " at " + finding.getFilePath()), null);
+        evaluator.onFinding(finding(Severity.HIGH, "a.py"));
+        evaluator.onFinding(finding(Severity.HIGH, "b.py"));
+        evaluator.onFinding(finding(Severity.HIGH, "c.py"));
+
+        assertEquals(Collections.singletonList("high > 1 at b.py"), trips);
+        assertEquals(Collections.singletonList("high > 1 (3 findings)"), evaluator.getViolations());
+    }
+
+    @Test
+    public void newConditionsOnlyCountFindingsTheLastBuildDidNotHave() throws IOException {
+        Finding existing = finding(Severity.HIGH, "old.py");
+        Finding added = finding(Severity.HIGH, "new.py");
+        FingerprintSet previous = FingerprintSet.of(new long[] {FindingFingerprint.of(existing)}, 1);
+        QualityGate gate = QualityGate.compile("new high > 0");
+
+        QualityGate.Evaluator unchanged = gate.newEvaluator(null, new FindingDiff(previous));
+        unchanged.onFinding(existing);
+        assertFalse(unchanged.isTripped());
+
+        QualityGate.Evaluator changed = gate.newEvaluator(null, new FindingDiff(previous));
+        changed.onFinding(existing);
+        changed.onFinding(added);
+        assertTrue(changed.isTripped());
+
+        // Without a previous build every finding is new
+        QualityGate.Evaluator first = gate.newEvaluator(null, null);
+        first.onFinding(existing);
+        assertTrue(first.isTripped());
+    }
+
+    @Test
+    public void failOnSeverityMatchesTheSeveritySwitch() throws IOException {
+        for (String setting : Arrays.asList("critical", "high", "medium", "low", "never", "", null)) {
+            QualityGate gate = QualityGate.compile(QualityGate.forFailOnSeverity(setting));
+            for (Severity severity : Severity.values()) {
+                QualityGate.Evaluator evaluator = gate.newEvaluator(null, null);
+                evaluator.onFinding(finding(severity));
+                assertEquals(setting + " with a " + severity.getLabel() + " finding",
+                    failsOn(setting, severity), evaluator.isTripped());
+            }
+        }
+        assertEquals("high+ > 0", QualityGate.forFailOnSeverity(" HIGH "));
+    }
+
+    @Test
+    public void rejectsUnknownFailOnSeverity() {
+        try {
+            QualityGate.forFailOnSeverity("severe");
+            fail("Accepted an unknown severity");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown fail-on severity 'severe'; use critical, high, medium, low or never", e.getMessage());
+        }
+    }
+
+    /**
+     * The severity switch the fail-on setting used to be: each setting fails on its severity
+     * and everything more severe, {@code low} on any finding and {@code never} on none.
+     */
+    private static boolean failsOn(String setting, Severity severity) {
+        if (setting == null) {
+            return false;
+        }
+        switch (setting) {
+            case "critical":
+                return severity == Severity.CRITICAL;
+            case "high":
+                return severity.compareTo(Severity.HIGH) <= 0;
+            case "medium":
+                return severity.compareTo(Severity.MEDIUM) <= 0;
+            case "low":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void assertCompileError(String policy, String message) {
+        try {
+            QualityGate.compile(policy);
+            fail("Compiled " + policy);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static boolean trips(String policy, Finding finding) throws IOException {
+        QualityGate.Evaluator evaluator = QualityGate.compile(policy).newEvaluator(null, null);
+        evaluator.onFinding(finding);
+        return evaluator.isTripped();
+    }
+
+    /**
+     * Returns the 1-based number of the finding that tripped the gate, or -1 if none did.
+     */
+    private static int tripIndex(String policy, Severity severity, int findings) throws IOException {
+        QualityGate.Evaluator evaluator = QualityGate.compile(policy).newEvaluator(null, null);
+        for (int i = 1; i <= findings; i++) {
+            evaluator.onFinding(finding(severity, "file" + i + ".py"));
+            if (evaluator.isTripped()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Finding finding(Severity severity) {
+        return finding(severity, "src/app.py");
+    }
+
+    private static Finding finding(Severity severity, String filePath) {
+        return new Finding("f-" + filePath, "semgrep", "rule-1", severity, null, null, "Title", null, filePath,
+            1, 0, null, 1.0);
+    }
+}
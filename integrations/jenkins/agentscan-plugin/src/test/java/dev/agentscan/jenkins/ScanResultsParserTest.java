@@ -0,0 +1,85 @@
+package dev.agentscan.jenkins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that malformed results documents fail instead of passing as complete.
+ */
+public class ScanResultsParserTest {
+
+    private static final String FINDING = "{\"id\":\"f-1\",\"severity\":\"high\",\"file_path\":\"app.py\"}";
+
+    @Test
+    public void skipsNullFindings() throws IOException {
+        Collector collector = parse("{\"findings\":[null," + FINDING + ",null]}");
+
+        assertEquals(1, collector.findings.size());
+        assertEquals("f-1", collector.findings.get(0).getId());
+        assertTrue(collector.ended);
+    }
+
+    @Test
+    public void rejectsFindingsThatAreNotObjects() {
+        assertRejected("{\"findings\":[" + FINDING + ",\"f-2\"," + FINDING + "]}");
+        assertRejected("{\"findings\":[" + FINDING + ",[]]}");
+    }
+
+    @Test
+    public void rejectsUnclosedResults() {
+        assertRejected("{\"findings\":[" + FINDING + "]");
+    }
+
+    @Test
+    public void rejectsTruncatedDocuments() {
+        assertRejected("{\"findings\":[" + FINDING);
+    }
+
+    private static void assertRejected(String json) {
+        Collector collector = new Collector();
+        try {
+            parse(json, collector);
+            fail("Parsed " + json);
+        } catch (IOException e) {
+            assertFalse("onEnd must not be called for " + json, collector.ended);
+        }
+    }
+
+    private static Collector parse(String json) throws IOException {
+        Collector collector = new Collector();
+        parse(json, collector);
+        return collector;
+    }
+
+    private static void parse(String json, Collector collector) throws IOException {
+        ScanResultsParser.parse(new ObjectMapper(), new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+            Collections.singletonList(collector));
+    }
+
+    private static final class Collector implements FindingHandler {
+        final List<Finding> findings = new ArrayList<>();
+        boolean ended;
+
+        @Override
+        public void onFinding(Finding finding) {
+            findings.add(finding);
+        }
+
+        @Override
+        public void onEnd() {
+            ended = true;
+        }
+    }
+}
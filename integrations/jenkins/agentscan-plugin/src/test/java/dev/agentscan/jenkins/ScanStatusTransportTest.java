@@ -0,0 +1,240 @@
+package dev.agentscan.jenkins;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hudson.FilePath;
+import hudson.util.StreamTaskListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs scans against a local stub of the AgentScan API to check each status transport.
+ */
+public class ScanStatusTransportTest {
+
+    private static final String JOB_PATH = "/api/v1/scans/job-1";
+    private static final String RESULTS = "{\"summary\":{\"total_findings\":1,\"by_severity\":{\"medium\":1}},"
+        + "\"findings\":[{\"id\":\"f-1\",\"tool\":\"semgrep\",\"rule_id\":\"sql-injection\",\"severity\":\"medium\","
+        + "\"title\":\"SQL injection\",\"file_path\":\"app/db.py\",\"line_number\":12}]}";
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger statusRequests = new AtomicInteger();
+    private final List<String> statusQueries = new CopyOnWriteArrayList<>();
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private volatile Handler eventsHandler = exchange -> respond(exchange, 404, "text/plain", "");
+    private volatile Handler statusHandler = exchange -> respond(exchange, 200, "application/json",
+        "{\"status\":\"completed\"}");
+
+    @Before
+    public void startServer() throws IOException {
+        AgentScanGlobalConfiguration config = AgentScanGlobalConfiguration.get();
+        config.setPollInitialIntervalMillis(20);
+        config.setPollMaxIntervalMillis(100);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v1/scans", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/v1/scans")) {
+                respond(exchange, 201, "application/json", "{\"job_id\":\"job-1\"}");
+            } else if (path.equals(JOB_PATH + "/events")) {
+                eventsHandler.handle(exchange);
+            } else if (path.equals(JOB_PATH + "/status")) {
+                statusRequests.incrementAndGet();
+                statusQueries.add(String.valueOf(exchange.getRequestURI().getQuery()));
+                statusHandler.handle(exchange);
+            } else if (path.equals(JOB_PATH + "/results")) {
+                respond(exchange, 200, "application/json", RESULTS);
+            } else {
+                respond(exchange, 404, "text/plain", "");
+            }
+        });
+        // Streams and long polls hold their exchange; other requests must not wait for them
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void streamReportsCompletion() throws Exception {
+        AgentScanGlobalConfiguration.get().setStatusTransport(StatusTransport.SSE);
+        eventsHandler = exchange -> {
+            OutputStream out = openStream(exchange);
+            sendEvent(out, "{\"status\":\"running\"}");
+            sendEvent(out, "{\"status\":\"completed\"}");
+            exchange.close();
+        };
+
+        ScanResult result = scan();
+
+        assertTrue(result.getErrorMessage(), result.isSuccess());
+        assertEquals(1, result.getFindings().size());
+        assertEquals("Completion must come from the stream", 0, statusRequests.get());
+    }
+
+    @Test
+    public void streamReportsFailure() throws Exception {
+        AgentScanGlobalConfiguration.get().setStatusTransport(StatusTransport.SSE);
+        eventsHandler = exchange -> {
+            OutputStream out = openStream(exchange);
+            sendEvent(out, "{\"status\":\"failed\",\"error_message\":\"scanner crashed\"}");
+            exchange.close();
+        };
+
+        ScanResult result = scan();
+
+        assertFalse(result.isSuccess());
+        assertEquals("Scan failed: scanner crashed", result.getErrorMessage());
+        assertEquals(0, statusRequests.get());
+    }
+
+    @Test
+    public void missingStreamFallsBackToPolling() throws Exception {
+        AgentScanGlobalConfiguration.get().setStatusTransport(StatusTransport.SSE);
+        AtomicInteger polls = new AtomicInteger();
+        statusHandler = exchange -> respond(exchange, 200, "application/json",
+            polls.incrementAndGet() < 3 ? "{\"status\":\"running\"}" : "{\"status\":\"completed\"}");
+
+        ScanResult result = scan();
+
+        assertTrue(result.getErrorMessage(), result.isSuccess());
+        assertEquals(3, statusRequests.get());
+        assertTrue(log(), log().contains("Status stream not available, falling back to polling"));
+    }
+
+    @Test
+    public void droppedStreamFallsBackToPolling() throws Exception {
+        AgentScanGlobalConfiguration.get().setStatusTransport(StatusTransport.SSE);
+        eventsHandler = exchange -> {
+            OutputStream out = openStream(exchange);
+            sendEvent(out, "{\"status\":\"running\"}");
+            // Closes the connection mid-scan
+            exchange.close();
+        };
+
+        ScanResult result = scan();
+
+        assertTrue(result.getErrorMessage(), result.isSuccess());
+        assertEquals(1, statusRequests.get());
+        assertTrue(log(), log().contains("Status stream closed early, falling back to polling"));
+    }
+
+    @Test
+    public void malformedStatusFallsBackToPolling() throws Exception {
+        AgentScanGlobalConfiguration.get().setStatusTransport(StatusTransport.SSE);
+        eventsHandler = exchange -> {
+            OutputStream out = openStream(exchange);
+            sendEvent(out, "{\"status\":42}");
+            sendEvent(out, "{\"status\":{\"state\":\"completed\"}}");
+            exchange.close();
+        };
+
+        ScanResult result = scan();
+
+        assertTrue(result.getErrorMessage(), result.isSuccess());
+        assertEquals(1, statusRequests.get());
+        assertTrue(log(), log().contains("Status stream closed early, falling back to polling"));
+    }
+
+    @Test
+    public void longPollWaitsOnTheServer() throws Exception {
+        AgentScanGlobalConfiguration config = AgentScanGlobalConfiguration.get();
+        config.setStatusTransport(StatusTransport.LONG_POLL);
+        config.setLongPollWaitSeconds(5);
+        AtomicInteger polls = new AtomicInteger();
+        statusHandler = exchange -> {
+            if (polls.incrementAndGet() == 1) {
+                // Holds the request like a server waiting for a status change
+                sleep(200);
+                respond(exchange, 200, "application/json", "{\"status\":\"running\"}");
+            } else {
+                respond(exchange, 200, "application/json", "{\"status\":\"failed\",\"error_message\":\"timeout\"}");
+            }
+        };
+
+        ScanResult result = scan();
+
+        assertFalse(result.isSuccess());
+        assertEquals("Scan failed: timeout", result.getErrorMessage());
+        assertEquals(2, statusRequests.get());
+        for (String query : statusQueries) {
+            assertEquals("wait=5", query);
+        }
+    }
+
+    private ScanResult scan() throws Exception {
+        String apiUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        AgentScanService service = new AgentScanService(apiUrl, "test-token",
+            new StreamTaskListener(log, StandardCharsets.UTF_8));
+        ScanOptions options = new ScanOptions();
+        options.setTimeoutMinutes(1);
+        options.setGenerateReport(false);
+        return service.executeScan(new FilePath(workspaceDir.getRoot()), options);
+    }
+
+    private String log() {
+        return new String(log.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static OutputStream openStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        return exchange.getResponseBody();
+    }
+
+    private static void sendEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        sleep(50);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}